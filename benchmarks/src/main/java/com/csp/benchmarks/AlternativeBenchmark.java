@@ -0,0 +1,101 @@
+package com.csp.benchmarks;
+
+import org.jcsp.lang.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alternative.priSelect() z kanałem i strażnikiem CSTimer - ta sama para
+ * strażników, na której DispatcherLink czeka na odpowiedź dispatchera.
+ *
+ * ready   - w kanale czekają dane od N pisarzy, wybór kończy się odczytem.
+ * timeout - kanał pusty, alarm już minął, wybór zwraca strażnika czasu.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlternativeBenchmark {
+
+    private static final int CHANNEL = 0;
+
+    @State(Scope.Benchmark)
+    public static class Ready {
+        @Param({"1", "4", "16"})
+        public int writers;
+
+        AltingChannelInput in;
+        CSTimer timer;
+        Alternative alt;
+        private final List<Thread> threads = new ArrayList<>();
+        private volatile boolean running;
+
+        @Setup(Level.Trial)
+        public void start() {
+            Any2OneChannel channel = Channel.any2one();
+            in = channel.in();
+            timer = new CSTimer();
+            alt = new Alternative(new Guard[] {in, timer});
+
+            running = true;
+            for (int i = 0; i < writers; i++) {
+                final Integer message = i;
+                ChannelOutput out = channel.out();
+                Thread writer = new Thread(() -> {
+                    while (running) {
+                        out.write(message);
+                    }
+                }, "writer-" + i);
+                writer.start();
+                threads.add(writer);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            running = false;
+            // Pisarze mogą wisieć na write() - odbieraj, aż wszyscy się zakończą
+            for (Thread writer : threads) {
+                while (writer.isAlive()) {
+                    if (in.pending()) {
+                        in.read();
+                    } else {
+                        writer.join(1);
+                    }
+                }
+            }
+            threads.clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Idle {
+        CSTimer timer;
+        Alternative alt;
+
+        @Setup(Level.Trial)
+        public void start() {
+            timer = new CSTimer();
+            alt = new Alternative(new Guard[] {Channel.one2one().in(), timer});
+        }
+    }
+
+    @Benchmark
+    public Object ready(Ready state) {
+        state.timer.setAlarm(state.timer.read() + 100);
+        if (state.alt.priSelect() == CHANNEL) {
+            return state.in.read();
+        }
+        return null;
+    }
+
+    @Benchmark
+    public int timeout(Idle state) {
+        state.timer.setAlarm(state.timer.read());
+        return state.alt.priSelect();
+    }
+}
@@ -0,0 +1,69 @@
+package com.csp.benchmarks;
+
+import org.jcsp.lang.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Odczyt z Any2OneChannel, do którego pisze N wątków naraz - tak dispatcher
+ * odbiera żądania od wszystkich producentów albo konsumentów. Mierzony jest
+ * czas jednego read() po stronie jedynego czytelnika.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Any2OneBenchmark {
+
+    @Param({"1", "2", "4", "16", "64"})
+    public int writers;
+
+    private Any2OneChannel channel;
+    private AltingChannelInput in;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void start() {
+        channel = Channel.any2one();
+        in = channel.in();
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            final Integer message = i;
+            ChannelOutput out = channel.out();
+            Thread writer = new Thread(() -> {
+                while (running) {
+                    out.write(message);
+                }
+            }, "writer-" + i);
+            writer.start();
+            threads.add(writer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        running = false;
+        // Pisarze mogą wisieć na write() - odbieraj, aż wszyscy się zakończą
+        for (Thread writer : threads) {
+            while (writer.isAlive()) {
+                if (in.pending()) {
+                    in.read();
+                } else {
+                    writer.join(1);
+                }
+            }
+        }
+        threads.clear();
+    }
+
+    @Benchmark
+    public Object read() {
+        return in.read();
+    }
+}
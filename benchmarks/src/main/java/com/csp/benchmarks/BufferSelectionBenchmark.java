@@ -0,0 +1,74 @@
+package com.csp.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wybór bufora przez politykę (SelectionPolicy) - wywoływany przez każdego
+ * producenta i konsumenta przy każdym elemencie.
+ *
+ * select          - sam wybór.
+ * updateAndSelect - wybór i informacja zwrotna po operacji, jak w pętli procesu.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BufferSelectionBenchmark {
+
+    private static final int CAPACITY = 1000;
+    private static final int PRIMING_ROUNDS = 32;
+
+    @Param({"weighted", "two-choices", "ucb", "round-robin"})
+    public String policy;
+
+    @Param({"2", "10", "100", "1000"})
+    public int buffers;
+
+    /** Równe czasy buforów albo czasy rosnące z indeksem (przed pomiarem). */
+    @Param({"uniform", "skewed"})
+    public String distribution;
+
+    private Object selection;  // BufferSelectionPolicy
+    private long waitNanos;
+
+    @Setup(Level.Trial)
+    public void start() throws Throwable {
+        Object queues = ProjectHandles.newBufferArray(buffers);
+        for (int i = 0; i < buffers; i++) {
+            ProjectHandles.setBuffer(queues, i,
+                (Object) ProjectHandles.CREATE_BUFFER.invokeExact("queue", CAPACITY));
+        }
+        Object settings = (Object) ProjectHandles.NEW_POLICY_SETTINGS.invokeExact();
+        Object selectionPolicy = (Object) ProjectHandles.PARSE_POLICY.invokeExact(policy);
+        selection = (Object) ProjectHandles.CREATE_POLICY.invokeExact(
+            selectionPolicy, queues, true, settings, new SplittableRandom(42));
+
+        if (distribution.equals("skewed")) {
+            for (int round = 0; round < PRIMING_ROUNDS; round++) {
+                for (int i = 0; i < buffers; i++) {
+                    ProjectHandles.ON_SUCCESS.invokeExact(selection, i, i * 100_000L);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int select() throws Throwable {
+        return (int) ProjectHandles.SELECT.invokeExact(selection);
+    }
+
+    @Benchmark
+    public int updateAndSelect() throws Throwable {
+        int target = (int) ProjectHandles.SELECT.invokeExact(selection);
+        if (target < buffers) {
+            waitNanos = (waitNanos + 7_919) % 2_000_000;
+            ProjectHandles.ON_SUCCESS.invokeExact(selection, target, waitNanos);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,94 @@
+package com.csp.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * offer/poll z tymi samymi limitami czasu co w TablicaDispatcher (50 ms)
+ * dla implementacji bufora: QUEUE (ArrayBlockingQueue), RING i MAPPED
+ * (segment w pliku mapowanym, w katalogu tymczasowym).
+ *
+ * uncontended - jeden wątek wstawia i od razu pobiera.
+ * poll        - jeden konsument, N producentów w tle wypełnia bufor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemBufferBenchmark {
+
+    private static final long TIMEOUT_MS = 50;
+    private static final int CAPACITY = 1000;
+
+    @State(Scope.Thread)
+    public static class Single {
+        @Param({"queue", "ring", "mapped"})
+        public String backend;
+
+        Object buffer;
+
+        @Setup(Level.Trial)
+        public void start() throws Throwable {
+            buffer = (Object) ProjectHandles.CREATE_BUFFER.invokeExact(backend, CAPACITY);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Contended {
+        @Param({"queue", "ring", "mapped"})
+        public String backend;
+
+        @Param({"1", "4", "16"})
+        public int producers;
+
+        Object buffer;
+        private final List<Thread> threads = new ArrayList<>();
+        private volatile boolean running;
+
+        @Setup(Level.Trial)
+        public void start() throws Throwable {
+            buffer = (Object) ProjectHandles.CREATE_BUFFER.invokeExact(backend, CAPACITY);
+            running = true;
+            for (int i = 0; i < producers; i++) {
+                Thread producer = new Thread(() -> {
+                    int item = 0;
+                    try {
+                        while (running) {
+                            boolean placed = (boolean) ProjectHandles.OFFER.invokeExact(
+                                buffer, item++, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                        }
+                    } catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, "producer-" + i);
+                producer.start();
+                threads.add(producer);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            running = false;
+            for (Thread producer : threads) {
+                producer.join();
+            }
+            threads.clear();
+        }
+    }
+
+    @Benchmark
+    public int uncontended(Single state) throws Throwable {
+        boolean placed = (boolean) ProjectHandles.OFFER.invokeExact(
+            state.buffer, 1, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        return (int) ProjectHandles.POLL.invokeExact(state.buffer, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    public int poll(Contended state) throws Throwable {
+        return (int) ProjectHandles.POLL.invokeExact(state.buffer, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+}
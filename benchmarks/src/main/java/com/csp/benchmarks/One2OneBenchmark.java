@@ -0,0 +1,87 @@
+package com.csp.benchmarks;
+
+import org.jcsp.lang.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendezvous na One2OneChannel - koszt jednego write() z czytelnikiem
+ * w osobnym wątku oraz pełnej wymiany żądanie-odpowiedź, jaką wykonuje
+ * DispatcherLink w trybie kanałowym.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class One2OneBenchmark {
+
+    private static final Integer STOP = -1;
+    private static final Integer ITEM = 1;
+
+    /** Kanał z czytelnikiem, który tylko odbiera. */
+    @State(Scope.Benchmark)
+    public static class Sink {
+        One2OneChannel channel;
+        Thread reader;
+
+        @Setup(Level.Trial)
+        public void start() {
+            channel = Channel.one2one();
+            ChannelInput in = channel.in();
+            reader = new Thread(() -> {
+                while (in.read() != STOP) {
+                    // Odbieraj do sygnału końca
+                }
+            }, "sink");
+            reader.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            channel.out().write(STOP);
+            reader.join();
+        }
+    }
+
+    /** Para kanałów z procesem odsyłającym każdą wiadomość. */
+    @State(Scope.Benchmark)
+    public static class Echo {
+        One2OneChannel request;
+        One2OneChannel response;
+        Thread echo;
+
+        @Setup(Level.Trial)
+        public void start() {
+            request = Channel.one2one();
+            response = Channel.one2one();
+            ChannelInput in = request.in();
+            ChannelOutput out = response.out();
+            echo = new Thread(() -> {
+                Object message;
+                while ((message = in.read()) != STOP) {
+                    out.write(message);
+                }
+            }, "echo");
+            echo.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            request.out().write(STOP);
+            echo.join();
+        }
+    }
+
+    @Benchmark
+    public void write(Sink sink) {
+        sink.channel.out().write(ITEM);
+    }
+
+    @Benchmark
+    public Object roundTrip(Echo echo) {
+        echo.request.out().write(ITEM);
+        return echo.response.in().read();
+    }
+}
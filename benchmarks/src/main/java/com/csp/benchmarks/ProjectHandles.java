@@ -0,0 +1,120 @@
+package com.csp.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dostęp do klas projektu z pakietu domyślnego.
+ *
+ * JMH wymaga benchmarków w nazwanym pakiecie, a z nazwanego pakietu nie da
+ * się odwołać do pakietu domyślnego w kodzie źródłowym. Uchwyty są polami
+ * static final, więc JIT wstawia wywołania tak, jakby były bezpośrednie.
+ * Typy projektu (ItemBuffer, BufferSelectionPolicy...) są widziane jako Object.
+ */
+final class ProjectHandles {
+
+    static final MethodHandle NEW_POLICY_SETTINGS; // () -> Object
+    static final MethodHandle PARSE_POLICY;        // (String) -> Object
+    static final MethodHandle CREATE_POLICY;       // (Object, Object, boolean, Object, SplittableRandom) -> Object
+    static final MethodHandle SELECT;              // (Object) -> int
+    static final MethodHandle ON_SUCCESS;          // (Object, int, long) -> void
+    static final MethodHandle CREATE_BUFFER;       // (String, int) -> Object, MAPPED w katalogu tymczasowym
+    static final MethodHandle OFFER;               // (Object, int, long, TimeUnit) -> boolean
+    static final MethodHandle POLL;                // (Object, long, TimeUnit) -> int
+
+    private static final Class<?> BUFFER;
+    private static final MethodHandle CREATE_IN_STORE; // (String, int, Path, int) -> Object
+
+    static {
+        try {
+            Class<?> settings = Class.forName("PolicySettings");
+            Class<?> policyEnum = Class.forName("SelectionPolicy");
+            Class<?> policy = Class.forName("BufferSelectionPolicy");
+            Class<?> backend = Class.forName("BufferBackend");
+            Class<?> buffer = Class.forName("ItemBuffer");
+            Class<?> buffers = Array.newInstance(buffer, 0).getClass();
+            BUFFER = buffer;
+
+            NEW_POLICY_SETTINGS = generic(lookup(settings).findConstructor(settings,
+                MethodType.methodType(void.class)));
+            PARSE_POLICY = generic(lookup(policyEnum).findStatic(policyEnum, "parse",
+                MethodType.methodType(policyEnum, String.class)));
+            CREATE_POLICY = generic(lookup(policyEnum).findVirtual(policyEnum, "create",
+                MethodType.methodType(policy, buffers, boolean.class, settings, SplittableRandom.class)));
+            SELECT = generic(lookup(policy).findVirtual(policy, "select",
+                MethodType.methodType(int.class)));
+            ON_SUCCESS = generic(lookup(policy).findVirtual(policy, "onSuccess",
+                MethodType.methodType(void.class, int.class, long.class)));
+
+            MethodHandle parse = lookup(backend).findStatic(backend, "parse",
+                MethodType.methodType(backend, String.class));
+            MethodHandle create = lookup(backend).findVirtual(backend, "create",
+                MethodType.methodType(buffer, int.class, Path.class, int.class));
+            CREATE_IN_STORE = generic(MethodHandles.filterArguments(create, 0, parse));
+            CREATE_BUFFER = MethodHandles.lookup().findStatic(ProjectHandles.class, "createBuffer",
+                MethodType.methodType(Object.class, String.class, int.class));
+
+            OFFER = generic(lookup(buffer).findVirtual(buffer, "offer",
+                MethodType.methodType(boolean.class, int.class, long.class, TimeUnit.class)));
+            POLL = generic(lookup(buffer).findVirtual(buffer, "poll",
+                MethodType.methodType(int.class, long.class, TimeUnit.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ProjectHandles() {
+    }
+
+    /** Bufor w nowym katalogu tymczasowym, żeby MAPPED nie zastał elementów poprzedniej próby. */
+    private static Object createBuffer(String backend, int capacity) throws Throwable {
+        Path store;
+        try {
+            store = Files.createTempDirectory("item-buffer-");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        store.toFile().deleteOnExit();
+        store.resolve("buffer-0.seg").toFile().deleteOnExit();
+        return (Object) CREATE_IN_STORE.invokeExact(backend, capacity, store, 0);
+    }
+
+    /** Nowa tablica ItemBuffer[] widziana jako Object. */
+    static Object newBufferArray(int length) {
+        return Array.newInstance(BUFFER, length);
+    }
+
+    static void setBuffer(Object buffers, int index, Object buffer) {
+        Array.set(buffers, index, buffer);
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> target) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+    }
+
+    /** Zamienia typy projektu w sygnaturze na Object, żeby działało invokeExact. */
+    private static MethodHandle generic(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isProjectType(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isProjectType(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isProjectType(Class<?> type) {
+        // Dla tablic getPackageName() zwraca pakiet typu elementu
+        return !type.isPrimitive() && type.getPackageName().isEmpty();
+    }
+}
@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Zapis EventLog przez wiele mapowanych fragmentów i odczyt EventLogDecoder.
+ */
+class EventLogTest {
+
+    // Mniej niż pierścień procesu - zapis bez czekania na wątek dziennika niczego nie gubi
+    private static final int RECORDS_PER_WRITER = 10_000;
+    private static final int WRITERS = 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripAcrossUnalignedChunks() throws IOException {
+        // 1000 % RECORD_BYTES = 16 - koniec fragmentu nie mieści rekordu
+        roundTrip(1000);
+    }
+
+    @Test
+    void roundTripAcrossAlignedChunks() throws IOException {
+        roundTrip(100L * EventLog.RECORD_BYTES);
+    }
+
+    private void roundTrip(long chunkBytes) throws IOException {
+        Path path = dir.resolve("events.log");
+        EventLog log = new EventLog(path, 1, chunkBytes);
+        for (int p = 0; p < WRITERS; p++) {
+            EventLog.Writer writer = log.writer();
+            for (int i = 0; i < RECORDS_PER_WRITER; i++) {
+                writer.log(EventLog.PUT, p, i % 8, EventLog.item(i, -1));
+            }
+        }
+        log.close();
+        assertEquals(0, log.dropped());
+        assertEquals((long) WRITERS * RECORDS_PER_WRITER, log.records());
+
+        StringWriter text = new StringWriter();
+        EventLogDecoder.decode(path, false, Long.MAX_VALUE, new PrintWriter(text));
+        String[] lines = text.toString().split("\\R");
+        assertEquals(WRITERS * RECORDS_PER_WRITER, lines.length);
+
+        // Między procesami kolejność po czasie jest dowolna, w obrębie procesu - zapisu
+        for (int p = 0; p < WRITERS; p++) {
+            String prefix = "Producer[" + p + "]: ";
+            List<String> own = new ArrayList<>();
+            for (String line : lines) {
+                if (line.startsWith(prefix)) own.add(line);
+            }
+            assertEquals(RECORDS_PER_WRITER, own.size());
+            for (int i = 0; i < RECORDS_PER_WRITER; i++) {
+                assertEquals(prefix + i + " -> Buffer[" + (i % 8) + "]", own.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.jupiter.api.Test;
+
+/**
+ * IntRingBuffer: przejście indeksów przez koniec tablicy, paczki i wielu
+ * producentów z wieloma konsumentami naraz.
+ */
+class IntRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new IntRingBuffer(5).capacity());
+        assertEquals(8, new IntRingBuffer(8).capacity());
+        assertEquals(1, new IntRingBuffer(1).capacity());
+    }
+
+    @Test
+    void itemNumbersWrapPastSentinel() {
+        IntRingBuffer ring = new IntRingBuffer(8);
+        long first = Integer.MAX_VALUE - 2L;
+        for (long sequence = first; sequence < first + 6; sequence++) {
+            int item = ItemBuffer.item(sequence);
+            assertTrue(item >= 0 && item != ItemBuffer.EMPTY, "element " + item);
+            assertTrue(ring.tryOffer(item));
+        }
+        int[] expected = { Integer.MAX_VALUE - 2, Integer.MAX_VALUE - 1, Integer.MAX_VALUE, 0, 1, 2 };
+        for (int item : expected) {
+            assertEquals(item, ring.tryPoll());
+        }
+        assertEquals(ItemBuffer.EMPTY, ring.tryPoll());
+    }
+
+    @Test
+    void keepsFifoOrderAcrossManyWrapArounds() {
+        IntRingBuffer ring = new IntRingBuffer(4);
+        int next = 0;
+        int expected = 0;
+        // Wypełnienie zmienia się co krok, więc głowa i ogon mijają koniec tablicy w różnych miejscach
+        for (int round = 0; round < 10_000; round++) {
+            int toOffer = 1 + round % 4;
+            for (int i = 0; i < toOffer && ring.tryOffer(next); i++) {
+                next++;
+            }
+            int toPoll = 1 + (round * 7) % 4;
+            for (int i = 0; i < toPoll; i++) {
+                int item = ring.tryPoll();
+                if (item == ItemBuffer.EMPTY) break;
+                assertEquals(expected++, item);
+            }
+        }
+        int item;
+        while ((item = ring.tryPoll()) != ItemBuffer.EMPTY) {
+            assertEquals(expected++, item);
+        }
+        assertEquals(next, expected);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void fullAndEmptyAreReported() throws InterruptedException {
+        IntRingBuffer ring = new IntRingBuffer(2);
+        assertEquals(ItemBuffer.EMPTY, ring.poll(0, TimeUnit.MILLISECONDS));
+        assertTrue(ring.offer(1, 0, TimeUnit.MILLISECONDS));
+        assertTrue(ring.offer(2, 0, TimeUnit.MILLISECONDS));
+        assertFalse(ring.offer(3, 1, TimeUnit.MILLISECONDS));
+        assertEquals(2, ring.size());
+        assertEquals(1, ring.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(2, ring.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(ItemBuffer.EMPTY, ring.poll(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void batchOfferStopsAtCapacityAndDrainTakesInOrder() throws InterruptedException {
+        IntRingBuffer ring = new IntRingBuffer(8);
+        int[] items = new int[12];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = 100 + i;
+        }
+
+        assertEquals(8, ring.offerBatch(items, 0, items.length, 0, TimeUnit.MILLISECONDS));
+        assertEquals(0, ring.offerBatch(items, 8, 4, 0, TimeUnit.MILLISECONDS));
+
+        int[] dst = new int[10];
+        assertEquals(5, ring.drainTo(dst, 1, 5));
+        assertArrayEquals(new int[]{ 0, 100, 101, 102, 103, 104, 0, 0, 0, 0 }, dst);
+
+        // Reszta paczki od offsetu - przechodzi przez koniec tablicy
+        assertEquals(4, ring.offerBatch(items, 8, 4, 0, TimeUnit.MILLISECONDS));
+        int[] rest = new int[10];
+        assertEquals(7, ring.drainTo(rest, 0, rest.length));
+        assertArrayEquals(new int[]{ 105, 106, 107, 108, 109, 110, 111, 0, 0, 0 }, rest);
+        assertEquals(0, ring.drainTo(rest, 0, rest.length));
+    }
+
+    @Test
+    void everyItemIsTakenExactlyOnceUnderContention() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 200_000;
+        int total = producers * perProducer;
+        IntRingBuffer ring = new IntRingBuffer(64);
+        AtomicLongArray seen = new AtomicLongArray(total);
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads.add(new Thread(() -> {
+                await(start);
+                int[] batch = new int[16];
+                int next = first;
+                try {
+                    while (next < first + perProducer) {
+                        int count = Math.min(batch.length, first + perProducer - next);
+                        for (int i = 0; i < count; i++) {
+                            batch[i] = next + i;
+                        }
+                        int placed = 0;
+                        while (placed < count) {
+                            placed += ring.offerBatch(batch, placed, count - placed, 10, TimeUnit.MILLISECONDS);
+                        }
+                        next += count;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            boolean batched = (c % 2 == 0);
+            threads.add(new Thread(() -> {
+                await(start);
+                int[] dst = new int[8];
+                try {
+                    while (taken.get() < total) {
+                        int n;
+                        if (batched) {
+                            n = ring.drainTo(dst, 0, dst.length);
+                        } else {
+                            int item = ring.poll(1, TimeUnit.MILLISECONDS);
+                            n = (item == ItemBuffer.EMPTY) ? 0 : 1;
+                            dst[0] = item;
+                        }
+                        for (int i = 0; i < n; i++) {
+                            seen.incrementAndGet(dst[i]);
+                        }
+                        taken.addAndGet(n);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((t, e) -> {
+                synchronized (errors) {
+                    errors.add(e);
+                }
+            });
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+            assertFalse(thread.isAlive(), "wątek nie zakończył się: " + thread.getName());
+        }
+
+        assertTrue(errors.isEmpty(), () -> "błędy wątków: " + errors);
+        assertEquals(total, taken.get());
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "element " + i);
+        }
+        assertEquals(0, ring.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ReorderWindow: odtwarzanie pełnych numerów z 31 bitów elementu i
+ * dostarczanie ściśle w kolejności przy wielu wkładających wątkach.
+ */
+class ReorderWindowTest {
+
+    /** Zapisuje dostarczone elementy; wołana tylko pod blokadą drenowania. */
+    private static final class Recorder implements ReorderWindow.Delivery {
+        final List<Integer> values = new ArrayList<>();
+        final List<Integer> buffers = new ArrayList<>();
+
+        @Override
+        public void deliver(int value, int buffer) {
+            values.add(value);
+            buffers.add(buffer);
+        }
+
+        @Override
+        public void endOfSeries() {
+        }
+    }
+
+    @Test
+    void sequenceFollowsExpectedNumberAcrossItemWrap() {
+        long first = (1L << 31) - 2;
+        ReorderWindow window = new ReorderWindow(8, first);
+        assertEquals(first, window.sequence(ItemBuffer.item(first)));
+        assertEquals(first + 2, window.sequence(ItemBuffer.item(first + 2)));
+        assertEquals(0, ItemBuffer.item(first + 2));
+        assertEquals(first - 5, window.sequence(ItemBuffer.item(first - 5)));
+    }
+
+    @Test
+    void deliversInOrderAcrossItemWrap() {
+        long first = (1L << 31) - 3;
+        ReorderWindow window = new ReorderWindow(8, first);
+        Recorder recorder = new Recorder();
+
+        // Kolejność pobrania: 2, 0, 4, 1, 3 (względem first)
+        int[] offsets = { 2, 0, 4, 1, 3 };
+        for (int offset : offsets) {
+            int item = ItemBuffer.item(first + offset);
+            assertEquals(ReorderWindow.PLACED, window.offer(window.sequence(item), item, offset, recorder));
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int offset = 0; offset < 5; offset++) {
+            expected.add(ItemBuffer.item(first + offset));
+        }
+        assertEquals(expected, recorder.values);
+        assertEquals(List.of(0, 1, 2, 3, 4), recorder.buffers);
+        assertEquals(5, window.delivered());
+
+        // Numer sprzed oczekiwanego jest spóźniony i nie trafia do okna
+        int old = ItemBuffer.item(first - 1);
+        assertEquals(ReorderWindow.LATE, window.offer(window.sequence(old), old, 0, recorder));
+    }
+
+    @Test
+    void skipGapDeliversWhatFollowsMissingNumbers() {
+        ReorderWindow window = new ReorderWindow(4);
+        Recorder recorder = new Recorder();
+        assertEquals(ReorderWindow.PLACED, window.offer(3, 3, 0, recorder));
+        assertEquals(ReorderWindow.PLACED, window.offer(4, 4, 0, recorder));
+        assertEquals(ReorderWindow.FULL, window.offer(5, 5, 0, recorder));
+        assertTrue(recorder.values.isEmpty());
+
+        window.skipGap(recorder);
+        assertEquals(List.of(3, 4), recorder.values);
+        assertEquals(2, window.gaps());
+        assertEquals(ReorderWindow.PLACED, window.offer(5, 5, 0, recorder));
+        assertEquals(ReorderWindow.LATE, window.offer(1, 1, 0, recorder));
+        assertEquals(List.of(3, 4, 5), recorder.values);
+    }
+
+    @Test
+    void concurrentOffersAreDeliveredInOrder() throws Exception {
+        int threads = 4;
+        int perThread = 50_000;
+        long first = (1L << 31) - perThread;
+        ReorderWindow window = new ReorderWindow(64, first);
+        // Dostarczenia są pod blokadą drenowania, więc wspólna lista wystarczy
+        Recorder recorder = new Recorder();
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int item = ItemBuffer.item(first + offset + (long) i * threads);
+                    while (window.offer(window.sequence(item), item, offset, recorder)
+                            == ReorderWindow.FULL) {
+                        // Brakujący numer ma inny wątek - oddaj mu procesor
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(60));
+            assertFalse(worker.isAlive(), "wątek nie zakończył się: " + worker.getName());
+        }
+
+        assertEquals(threads * perThread, recorder.values.size());
+        for (int i = 0; i < recorder.values.size(); i++) {
+            assertEquals(ItemBuffer.item(first + i), (int) recorder.values.get(i), "pozycja " + i);
+        }
+        assertEquals(0, window.gaps());
+    }
+}
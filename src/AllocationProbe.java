@@ -0,0 +1,60 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Pomiar alokacji i pracy GC bez profilera: bajty zaalokowane przez bieżący
+ * wątek (com.sun.management.ThreadMXBean z HotSpot) oraz łączna liczba i
+ * czas odśmiecań ze wszystkich GarbageCollectorMXBean.
+ *
+ * Licznik wątku to suma rozmiarów TLAB i alokacji poza nimi - odczyt jest
+ * tani, więc można go brać na początku i końcu procesu. Dla wątków
+ * wirtualnych i na JVM bez wsparcia zwraca -1.
+ */
+final class AllocationProbe {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private AllocationProbe() {
+    }
+
+    /** Bajty zaalokowane dotąd przez bieżący wątek albo -1. */
+    static long threadAllocatedBytes() {
+        if (THREADS == null) return -1;
+        try {
+            return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /** Liczba odśmiecań od startu JVM (wszystkie kolektory). */
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /** Łączny czas odśmiecań od startu JVM w ms (wszystkie kolektory). */
+    static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported()) return null;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+}
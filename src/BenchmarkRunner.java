@@ -0,0 +1,454 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Nieinteraktywny uruchamiacz testów do skryptów i CI.
+ *
+ * Czyta konfiguracje w tym samym formacie co TestTablicaDispatcher
+ * ("P B K t [klucz=wartość ...]"), dla każdej wykonuje przebiegi
+ * rozgrzewkowe (odrzucane) i N pomiarowych, a następnie zapisuje średnią,
+ * odchylenie i 95% przedział ufności przepustowości oraz równomierności
+ * jako CSV albo JSON. Postęp idzie na stderr, wynik na stdout lub do pliku.
+ *
+ * --policies uruchamia każdą konfigurację osobno z każdą z podanych polityk
+ * wyboru bufora, żeby porównać je na tym samym obciążeniu.
+ *
+ * Przykład:
+ *   java BenchmarkRunner --config testy.txt --warmup 1 --repeat 5 --format json
+ *   java BenchmarkRunner --config testy.txt --policies weighted,two-choices,ucb,thompson,round-robin
+ *
+ * Reakcję tablicy wag na zmianę obciążenia w połowie przebiegu mierzy
+ * shift-ms (czas do zbieżności w linii postępu i w JSON), np. dla średniej
+ * z całego przebiegu i z wygaszaniem:
+ *   java BenchmarkRunner --config testy.txt --set shift-ms=3000 --set decay-ms=0
+ *
+ * --suite heterogeneous[:SEKUNDY] zamiast --config uruchamia wbudowany
+ * zestaw scenariuszy z różnymi szybkościami procesów i buforów
+ * (WorkloadSuite) - domyślnie dla weighted i round-robin - i na końcu
+ * wypisuje na stderr porównanie każdej polityki z round-robin:
+ *   java BenchmarkRunner --suite heterogeneous:5 --repeat 3 --format json
+ *
+ * Koszt trwałych buforów (backend=mapped, segmenty w plikach mapowanych)
+ * względem buforów w pamięci - linie konfiguracji różniące się backendem:
+ *   4 8 4 5 backend=ring batch=16
+ *   4 8 4 5 backend=mapped batch=16 store=/tmp/bufory
+ * Kolejne przebiegi z tym samym store zaczynają od elementów zostawionych
+ * przez poprzednie (recovered i persisted w JSON).
+ *
+ * Alokację i pracę GC każdego przebiegu (bajty na synchronizację, liczba i
+ * czas odśmiecań) zawiera JSON i linia postępu; szczegóły odśmiecań daje
+ * uruchomienie z logiem GC:
+ *   java -Xlog:gc:file=gc.log BenchmarkRunner --config testy.txt --format json
+ */
+public class BenchmarkRunner {
+
+    // Wartości krytyczne t-Studenta dla dwustronnego 95% CI, indeks = stopnie swobody
+    private static final double[] T_95 = {
+        Double.NaN, 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    public static void main(String[] args) {
+        String configFile = null;
+        String suite = null;
+        String outputFile = null;
+        String format = "csv";
+        int warmup = 1;
+        int repeat = 3;
+        long pauseMs = 500;
+        boolean print = false;
+        List<String> overrides = new ArrayList<>();
+        List<SelectionPolicy> policies = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config":   configFile = value(args, ++i); break;
+                    case "--output":   outputFile = value(args, ++i); break;
+                    case "--format":   format = value(args, ++i).toLowerCase(); break;
+                    case "--warmup":   warmup = Integer.parseInt(value(args, ++i)); break;
+                    case "--repeat":   repeat = Integer.parseInt(value(args, ++i)); break;
+                    case "--pause-ms": pauseMs = Long.parseLong(value(args, ++i)); break;
+                    case "--suite":    suite = value(args, ++i); break;
+                    case "--set":      overrides.add(value(args, ++i)); break;
+                    case "--policies":
+                        for (String name : value(args, ++i).split(",")) {
+                            policies.add(SelectionPolicy.parse(name));
+                        }
+                        break;
+                    case "--print":    print = true; break;
+                    default:
+                        throw new IllegalArgumentException("nieznany argument: " + args[i]);
+                }
+            }
+            if ((configFile == null) == (suite == null)) {
+                throw new IllegalArgumentException("podaj --config albo --suite");
+            }
+            if (suite != null && policies.isEmpty()) {
+                policies.addAll(WorkloadSuite.defaultPolicies());
+            }
+            if (!format.equals("csv") && !format.equals("json")) {
+                throw new IllegalArgumentException("nieznany format: " + format);
+            }
+            if (warmup < 0 || repeat < 1) {
+                throw new IllegalArgumentException("--warmup >= 0, --repeat >= 1");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Błąd: " + e.getMessage());
+            usage();
+            System.exit(2);
+            return;
+        }
+
+        List<TestConfig> configs;
+        try {
+            configs = (suite != null) ? WorkloadSuite.configs(suite) : TestConfig.readFile(configFile);
+            for (TestConfig cfg : configs) {
+                for (String option : overrides) {
+                    cfg.applyOption(option);
+                }
+                cfg.validate();
+            }
+        } catch (IOException e) {
+            System.err.println("Błąd odczytu pliku: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Błąd: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (configs.isEmpty()) {
+            System.err.println("Błąd: Brak poprawnych konfiguracji w pliku");
+            System.exit(1);
+            return;
+        }
+        if (!policies.isEmpty()) {
+            List<TestConfig> expanded = new ArrayList<>();
+            for (TestConfig cfg : configs) {
+                for (SelectionPolicy policy : policies) {
+                    expanded.add(cfg.withPolicy(policy));
+                }
+            }
+            configs = expanded;
+        }
+
+        List<List<RunResult>> results = new ArrayList<>();
+        for (int c = 0; c < configs.size(); c++) {
+            TestConfig cfg = configs.get(c);
+            String label = (c + 1) + "/" + configs.size() + " P=" + cfg.numProducers
+                + " B=" + cfg.numBuffers + " K=" + cfg.numConsumers + " t=" + cfg.durationSeconds
+                + " " + cfg.describeOptions();
+
+            for (int w = 0; w < warmup; w++) {
+                System.err.println("[" + label + "] rozgrzewka " + (w + 1) + "/" + warmup);
+                execute(cfg, print);
+                pause(pauseMs);
+            }
+
+            List<RunResult> runs = new ArrayList<>();
+            for (int r = 0; r < repeat; r++) {
+                RunResult result = execute(cfg, print);
+                System.err.printf(Locale.ROOT, "[%s] pomiar %d/%d: %.0f elem/s, CV %.1f%%, "
+                        + "alokacja/sync %.0f B + %.0f B, GC %d (%d ms)%n",
+                    label, r + 1, repeat, result.throughput(), result.bufferCoefficient(),
+                    result.allocatedPerSync(false), result.allocatedPerSync(true),
+                    result.totals.gcCount, result.totals.gcMillis);
+                if (cfg.shiftMillis > 0) {
+                    System.err.printf(Locale.ROOT, "[%s] zbieżność po zmianie obciążenia: %s (wolne/pozostałe %.1fx)%n",
+                        label, (result.totals.shiftConvergedMillis >= 0) 
+                            ? result.totals.shiftConvergedMillis + " ms" : "brak",
+                        result.totals.shiftRatio);
+                }
+                runs.add(result);
+                pause(pauseMs);
+            }
+            results.add(runs);
+        }
+
+        if (policies.contains(SelectionPolicy.ROUND_ROBIN) && policies.size() > 1) {
+            System.err.print(compareToRoundRobin(results, policies.size()));
+        }
+
+        String report = format.equals("json") ? toJson(results) : toCsv(results);
+        if (outputFile == null) {
+            System.out.print(report);
+            System.out.flush();
+        } else {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
+                writer.print(report);
+            } catch (IOException e) {
+                System.err.println("Błąd zapisu do pliku: " + e.getMessage());
+                System.exit(1);
+            }
+            System.err.println("Wyniki zapisano do: " + outputFile);
+        }
+    }
+
+    /** Wykonuje jeden przebieg bez interakcji i wątku postępu. */
+    static RunResult execute(TestConfig config, boolean print) {
+        RunStatistics stats = new RunStatistics(
+            config.numProducers, config.numBuffers, config.numConsumers);
+        if (config.latencyHistograms) {
+            stats.enableLatencyHistograms();
+        }
+
+        // Logi procesów trafiają na stderr, żeby nie mieszały się z raportem
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        try {
+            long startTime = System.nanoTime();
+            TablicaDispatcher system = new TablicaDispatcher(
+                config.numProducers, config.numBuffers, config.numConsumers,
+                config.durationSeconds, print, stats, new AtomicBoolean(false));
+            config.applyTo(system);
+            system.run();
+            long elapsed = (System.nanoTime() - startTime) / 1_000_000;
+            return new RunResult(config, elapsed, stats);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static String toCsv(List<List<RunResult>> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("P,B,K,t,").append(TestConfig.csvOptionsHeader())
+          .append(",powtorzenia,przepustowosc_srednia,przepustowosc_odchylenie,przepustowosc_ci95")
+          .append(",bajty_na_sek_srednia,bajty_na_sek_ci95")
+          .append(",wsp_zmiennosci_srednia,wsp_zmiennosci_odchylenie,wsp_zmiennosci_ci95")
+          .append(",p99_wstawianie_us,p99_pobieranie_us,rss_kb_max\n");
+
+        for (List<RunResult> runs : results) {
+            TestConfig cfg = runs.get(0).config;
+            Summary throughput = summarize(runs, RunResult::throughput);
+            Summary coefficient = summarize(runs, RunResult::bufferCoefficient);
+            Summary bytes = summarize(runs, RunResult::bytesPerSecond);
+            sb.append(String.format(Locale.ROOT,
+                "%d,%d,%d,%d,%s,%d,%.2f,%.2f,%.2f,%.0f,%.0f,%.2f,%.2f,%.2f,%s,%s,%d%n",
+                cfg.numProducers, cfg.numBuffers, cfg.numConsumers, cfg.durationSeconds,
+                cfg.csvOptions(), runs.size(),
+                throughput.mean, throughput.stdDev, throughput.ci95, bytes.mean, bytes.ci95,
+                coefficient.mean, coefficient.stdDev, coefficient.ci95,
+                orDash(p99Us(runs, true)), orDash(p99Us(runs, false)), maxRss(runs)));
+        }
+        return sb.toString();
+    }
+
+    private static String toJson(List<List<RunResult>> results) {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int c = 0; c < results.size(); c++) {
+            List<RunResult> runs = results.get(c);
+            TestConfig cfg = runs.get(0).config;
+            Summary throughput = summarize(runs, RunResult::throughput);
+            Summary coefficient = summarize(runs, RunResult::bufferCoefficient);
+
+            sb.append("  {\n");
+            sb.append(String.format(Locale.ROOT,
+                "    \"P\": %d, \"B\": %d, \"K\": %d, \"t\": %d,%n",
+                cfg.numProducers, cfg.numBuffers, cfg.numConsumers, cfg.durationSeconds));
+            sb.append(String.format(Locale.ROOT,
+                "    \"backend\": \"%s\", \"batch\": %d, \"shards\": %d, \"sync\": \"%s\", \"exec\": \"%s\","
+                    + " \"consume\": \"%s\", \"policy\": \"%s\", \"payload\": %d, \"order\": %d,"
+                    + " \"groups\": %d, \"remote\": %s, \"pin\": %s,"
+                    + " \"decayMs\": %d, \"aggPercentile\": %s, \"shiftMs\": %d, \"shiftUs\": %d,"
+                    + " \"workload\": %s, \"store\": %s,%n",
+                cfg.backend.name().toLowerCase(), cfg.batchSize, cfg.dispatcherShards,
+                cfg.syncMode.name().toLowerCase(), cfg.executionMode.name().toLowerCase(),
+                cfg.consumerStrategy.name().toLowerCase(), cfg.selectionPolicy.optionName(), cfg.payloadSize,
+                cfg.orderWindow, cfg.localityGroups, cfg.remoteShare, cfg.pinThreads,
+                cfg.decayMillis, cfg.aggregatePercentile, cfg.shiftMillis, cfg.shiftDelayMicros,
+                jsonString(cfg.workload.describe().trim()),
+                (cfg.backend == BufferBackend.MAPPED) ? jsonString(cfg.store) : "null"));
+            sb.append("    \"throughput\": ").append(throughput.toJson()).append(",\n");
+            sb.append("    \"bytesPerSecond\": ").append(summarize(runs, RunResult::bytesPerSecond).toJson()).append(",\n");
+            sb.append("    \"coefficientOfVariation\": ").append(coefficient.toJson()).append(",\n");
+            sb.append("    \"p99PutUs\": ").append(p99Us(runs, true)).append(",\n");
+            sb.append("    \"p99TakeUs\": ").append(p99Us(runs, false)).append(",\n");
+            sb.append("    \"runs\": [\n");
+            for (int r = 0; r < runs.size(); r++) {
+                RunResult run = runs.get(r);
+                sb.append(String.format(Locale.ROOT,
+                    "      {\"elapsedMs\": %d, \"measuredMs\": %d, \"produced\": %d, \"consumed\": %d, \"stolen\": %d, "
+                        + "\"remotePuts\": %d, \"remoteTakes\": %d, "
+                        + "\"spilled\": %d, \"putTimeouts\": %d, \"lostMs\": %d, \"orderGaps\": %d, \"late\": %d, "
+                        + "\"dropped\": %d, \"shutdownMs\": %d, \"syncs\": %d, "
+                        + "\"allocPerSyncProcesses\": %.1f, \"allocPerSyncDispatchers\": %.1f, "
+                        + "\"gcCount\": %d, \"gcMs\": %d, \"shiftConvergedMs\": %d, \"shiftRatio\": %.2f, "
+                        + "\"recovered\": %d, \"persisted\": %d, "
+                        + "\"throughput\": %.2f, \"coefficientOfVariation\": %.2f, \"peakRssKb\": %d}",
+                    run.elapsedMs, run.measuredMs, run.stats.produced, run.stats.consumed, run.stats.stolen,
+                    run.stats.remotePuts, run.stats.remoteTakes,
+                    run.stats.spilled, run.stats.putTimeouts, run.lostMillis(), run.totals.orderGaps, run.totals.lateItems,
+                    run.dropped(), run.totals.shutdownMillis, run.totals.syncs,
+                    run.allocatedPerSync(false), run.allocatedPerSync(true),
+                    run.totals.gcCount, run.totals.gcMillis,
+                    run.totals.shiftConvergedMillis, run.totals.shiftRatio,
+                    run.totals.recovered, run.totals.persisted,
+                    run.throughput(), run.bufferCoefficient(), run.peakRssKb));
+                sb.append(r < runs.size() - 1 ? ",\n" : "\n");
+            }
+            sb.append("    ]\n");
+            sb.append(c < results.size() - 1 ? "  },\n" : "  }\n");
+        }
+        sb.append("]\n");
+        return sb.toString();
+    }
+
+    /**
+     * Porównanie polityk z round-robin na tym samym obciążeniu: konfiguracje
+     * idą po policyCount kolejnych wyników (jak po rozwinięciu --policies).
+     * Stosunek przepustowości > 1 znaczy, że polityka wygrywa z round-robin.
+     */
+    private static String compareToRoundRobin(List<List<RunResult>> results, int policyCount) {
+        StringBuilder sb = new StringBuilder("Porównanie z round-robin (przepustowość, CV, p99 pobierania):\n");
+        for (int first = 0; first + policyCount <= results.size(); first += policyCount) {
+            List<RunResult> reference = null;
+            for (int p = first; p < first + policyCount; p++) {
+                if (results.get(p).get(0).config.selectionPolicy == SelectionPolicy.ROUND_ROBIN) {
+                    reference = results.get(p);
+                }
+            }
+            if (reference == null) continue;
+
+            TestConfig cfg = reference.get(0).config;
+            String workload = cfg.workload.describe().trim();
+            sb.append(String.format(Locale.ROOT, "  P=%d B=%d K=%d %s%n", cfg.numProducers, cfg.numBuffers,
+                cfg.numConsumers, workload.isEmpty() ? "(bez modelu obciążenia)" : workload));
+            double referenceThroughput = summarize(reference, RunResult::throughput).mean;
+            for (int p = first; p < first + policyCount; p++) {
+                List<RunResult> runs = results.get(p);
+                Summary throughput = summarize(runs, RunResult::throughput);
+                sb.append(String.format(Locale.ROOT, "    %-12s %10.0f elem/s  x%.2f  CV %5.1f%%  p99 %s us%n",
+                    runs.get(0).config.selectionPolicy.optionName(), throughput.mean,
+                    (referenceThroughput > 0) ? throughput.mean / referenceThroughput : 0,
+                    summarize(runs, RunResult::bufferCoefficient).mean, orDash(p99Us(runs, false))));
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Średnia, odchylenie próbkowe i połowa szerokości 95% CI. */
+    private static final class Summary {
+        final double mean;
+        final double stdDev;
+        final double ci95;
+
+        Summary(double mean, double stdDev, double ci95) {
+            this.mean = mean;
+            this.stdDev = stdDev;
+            this.ci95 = ci95;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"mean\": %.2f, \"stdDev\": %.2f, \"ci95\": %.2f}",
+                mean, stdDev, ci95);
+        }
+    }
+
+    private static Summary summarize(List<RunResult> runs, ToDoubleFunction<RunResult> metric) {
+        int n = runs.size();
+        double sum = 0;
+        for (RunResult run : runs) {
+            sum += metric.applyAsDouble(run);
+        }
+        double mean = sum / n;
+        if (n < 2) {
+            return new Summary(mean, 0, 0);
+        }
+
+        double squares = 0;
+        for (RunResult run : runs) {
+            double diff = metric.applyAsDouble(run) - mean;
+            squares += diff * diff;
+        }
+        double stdDev = Math.sqrt(squares / (n - 1));
+        double t = (n - 1 < T_95.length) ? T_95[n - 1] : 1.960;
+        return new Summary(mean, stdDev, t * stdDev / Math.sqrt(n));
+    }
+
+    /** p99 w µs ze scalonych histogramów wszystkich powtórzeń albo null bez histogramów. */
+    private static String p99Us(List<RunResult> runs, boolean put) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (RunResult run : runs) {
+            LatencyHistogram h = put ? run.putLatency() : run.takeLatency();
+            if (h == null) return null;
+            merged.add(h);
+        }
+        return String.format(Locale.ROOT, "%.1f", merged.percentile(99) / 1000.0);
+    }
+
+    /** Napis JSON w cudzysłowach - ścieżka magazynu może zawierać \ (Windows) albo ". */
+    private static String jsonString(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String orDash(String value) {
+        return (value != null) ? value : "-";
+    }
+
+    private static long maxRss(List<RunResult> runs) {
+        long max = -1;
+        for (RunResult run : runs) {
+            max = Math.max(max, run.peakRssKb);
+        }
+        return max;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("brak wartości dla " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Użycie: java BenchmarkRunner --config PLIK | --suite heterogeneous[:S]");
+        System.err.println("        [--warmup N] [--repeat N]");
+        System.err.println("        [--pause-ms MS] [--format csv|json] [--output PLIK] [--print]");
+        System.err.println("        [--set klucz=wartość]...   (opcja dla wszystkich konfiguracji)");
+        System.err.println("        [--policies weighted,two-choices,ucb,thompson,round-robin]");
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Implementacja buforów używana przez TablicaDispatcher.
+ * QUEUE - ArrayBlockingQueue&lt;Integer&gt; (pierwotna), RING - IntRingBuffer,
+ * MAPPED - MappedItemBuffer, trwały segment w pliku store/buffer-N.seg.
+ */
+public enum BufferBackend {
+    QUEUE,
+    RING,
+    MAPPED;
+
+    /**
+     * Bufor o numerze index. store - katalog segmentów (tylko MAPPED);
+     * istniejący segment jest otwierany razem z niepobranymi elementami.
+     */
+    ItemBuffer create(int capacity, Path store, int index) {
+        switch (this) {
+            case RING:
+                return new IntRingBuffer(capacity);
+            case MAPPED:
+                try {
+                    Files.createDirectories(store);
+                    return new MappedItemBuffer(store.resolve("buffer-" + index + ".seg"), capacity);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Nie udało się otworzyć bufora " + index
+                        + " w " + store + ": " + e.getMessage(), e);
+                }
+            case QUEUE:
+            default:
+                return new QueueItemBuffer(capacity);
+        }
+    }
+
+    static BufferBackend parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieznany backend buforów: " + name);
+        }
+    }
+}
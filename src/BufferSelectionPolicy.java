@@ -0,0 +1,28 @@
+/**
+ * Wybór bufora przez jeden proces (producenta albo konsumenta).
+ *
+ * Instancja należy do jednego procesu i nie jest współdzielona, więc
+ * implementacje trzymają stan bez synchronizacji. Wynik select() równy
+ * liczbie buforów oznacza synchronizację z dispatcherem.
+ */
+interface BufferSelectionPolicy {
+
+    /** Indeks bufora albo numBuffers, gdy proces ma zsynchronizować się z dispatcherem. */
+    int select();
+
+    /** Udana operacja na buforze - średni czas na element w nanosekundach. */
+    void onSuccess(int buffer, long nanosPerItem);
+
+    /**
+     * Nieudana operacja: timeout po waitedNanos czekania albo pełny/pusty
+     * bufor przy próbie bez czekania (przelewanie, podbieranie) - wtedy
+     * waitedNanos == 0. Najwyżej raz na próbę operacji na buforze.
+     */
+    void onMiss(int buffer, long waitedNanos);
+
+    /** Odpowiedź dispatchera - zagregowane czasy oczekiwania wszystkich procesów. */
+    void onSync(long[] aggregatedWaitTimes);
+
+    /** Ocena bufora do kolejności przelewania paczek - większa oznacza lepszy. */
+    double score(int buffer);
+}
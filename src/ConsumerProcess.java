@@ -0,0 +1,293 @@
+import org.jcsp.lang.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Proces konsumenta. Polityka wybiera bufor albo synchronizację z
+ * dispatcherem; z bufora konsument pobiera paczkę z timeoutem, a w
+ * strategii STEALING najpierw bez czekania, z podebraniem z
+ * najpełniejszego innego bufora, gdy wybrany jest pusty. Pobrane paczki
+ * przetwarza ConsumerSink - od razu albo przez okno kolejności. Po
+ * zakończeniu wszystkich producentów drenuje bufory bez czekania.
+ */
+final class ConsumerProcess implements CSProcess {
+
+    private static final int STEAL_PROBES = 8;
+    private static final long DRAIN_TIMEOUT_MS = 200;
+    private static final long ORDER_GAP_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ProcessContext ctx;
+    private final int cid;
+    private final DispatcherLink dispatcher;
+    private final boolean stealing;
+    private final StageHandoff next;
+    private final int numBuffers;
+    private final int batchSize;
+    private final long[] waitTimes;
+    private final int[] batch;
+    private final ConsumerSink sink;
+
+    // Stan procesu - ustawiany na jego wątku w run()
+    private BufferSelectionPolicy policy;
+    private EventLog.Writer log;
+    private SplittableRandom rand;
+    private int group;
+    private boolean grouped;
+
+    /**
+     * @param stealing strategia ConsumerStrategy.STEALING
+     * @param next wejście następnego etapu potoku (null = ostatni etap)
+     * @param worker model obciążenia konsumenta (null = bez obsługi)
+     */
+    ConsumerProcess(ProcessContext ctx, int cid, DispatcherLink dispatcher, boolean stealing,
+                    StageHandoff next, Workload.Worker worker) {
+        this.ctx = ctx;
+        this.cid = cid;
+        this.dispatcher = dispatcher;
+        this.stealing = stealing;
+        this.next = next;
+        this.numBuffers = ctx.numBuffers;
+        this.batchSize = ctx.batchSize;
+        this.waitTimes = new long[numBuffers + 1];
+        this.batch = new int[batchSize];
+        this.sink = new ConsumerSink(cid, ctx.stats, ctx.arena, worker, next, batchSize);
+    }
+
+    @Override
+    public void run() {
+        try {
+            group = ctx.startProcess(cid);
+            log = ctx.logWriter();
+            rand = new SplittableRandom(cid * 2000 + System.nanoTime());
+            policy = ctx.createPolicy(false, group, rand);
+            grouped = ctx.grouped();
+
+            while (ctx.activeProducers.get() > 0) {
+                int target = policy.select();
+
+                if (target == numBuffers) {
+                    sync();
+                } else if (!take(target)) {
+                    break;
+                }
+            }
+
+            drain();
+            if (log != null) log.log(EventLog.CONSUMER_FINISHED, cid, 0, 0);
+        } finally {
+            dispatcher.terminate();
+            // Następny etap kończy się dopiero po zakończeniu wszystkich procesów tego
+            if (next != null) next.close();
+        }
+    }
+
+    private void sync() {
+        long[] aggregated = dispatcher.sync(waitTimes);
+        if (aggregated != null) {
+            policy.onSync(aggregated);
+            DispatcherEvents.weightUpdate(false, cid, policy, numBuffers);
+            ctx.metrics.publishScores(false, cid, policy);
+            if (log != null) log.log(EventLog.CONSUMER_SYNCED, cid, 0, 0);
+        }
+    }
+
+    /**
+     * Jedna próba pobrania paczki z wyborem bufora target.
+     * @return false, gdy wątek przerwano
+     */
+    private boolean take(int target) {
+        ItemBuffer[] queues = ctx.queues;
+        RunStatistics stats = ctx.stats;
+        long startTime = System.nanoTime();
+
+        try {
+            int source = target;
+            int taken = 0;
+
+            if (stealing) {
+                // Nieblokująca próba na wybranym buforze
+                taken = queues[target].drainTo(batch, 0, batchSize);
+                if (taken == 0) {
+                    // Pusty - spróbuj najpełniejszego innego. Chybienie
+                    // wybranego bufora zgłaszane niżej, raz na próbę
+                    int victim = fullestBuffer(queues, target, rand, ctx.locality, group);
+                    if (victim >= 0) {
+                        taken = queues[victim].drainTo(batch, 0, batchSize);
+                        if (taken > 0) {
+                            source = victim;
+                            stats.addStolen(cid, taken);
+                        }
+                    }
+                }
+            }
+
+            if (taken == 0) {
+                // Czekaj na wybranym buforze, po terminie tylko chwilę -
+                // producenci właśnie kończą
+                long maxWait = Math.max(1, ctx.phases.waitMillis(50));
+                int item = queues[target].poll(maxWait, TimeUnit.MILLISECONDS);
+                if (item != ItemBuffer.EMPTY) {
+                    // Dobierz resztę paczki bez czekania
+                    batch[0] = item;
+                    taken = 1;
+                    if (batchSize > 1) {
+                        taken += queues[target].drainTo(batch, 1, batchSize - 1);
+                    }
+                }
+            }
+            if (ctx.shift != null && taken > 0) {
+                // Wolna grupa konsumentów - pobranie trwa dłużej
+                long delay = ctx.shift.delayNanos(source, System.nanoTime());
+                if (delay > 0) LockSupport.parkNanos(delay * taken);
+            }
+            if (ctx.model != null && taken > 0) {
+                // Wolny bufor z modelu obciążenia
+                long delay = ctx.model.takeDelayNanos(source);
+                if (delay > 0) LockSupport.parkNanos(delay * taken);
+            }
+            stats.recordTake(cid, source, System.nanoTime() - startTime);
+
+            if (taken > 0) {
+                if (source != target) {
+                    // Wybrany bufor był pusty, paczka podebrana bez czekania
+                    policy.onMiss(target, 0);
+                }
+                long elapsed = (System.nanoTime() - startTime) / taken;
+                waitTimes[source] = elapsed;
+                consume(source, taken);
+                policy.onSuccess(source, elapsed);
+                if (grouped && !ctx.locality.isLocal(group, source)) {
+                    stats.addRemoteTake(cid, taken);
+                }
+            } else {
+                // Timeout
+                long waited = System.nanoTime() - startTime;
+                DispatcherEvents.bufferTimeout(false, cid, target, waited);
+                policy.onMiss(target, waited);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Producenci skończyli, więc nowe elementy już nie przyjdą - opróżnia
+     * bufory bez czekania. Co zostanie po DRAIN_TIMEOUT_MS, liczy się jako
+     * porzucone przy zamknięciu.
+     */
+    private void drain() {
+        ItemBuffer[] queues = ctx.queues;
+        long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        int start = rand.nextInt(numBuffers);
+        while (System.currentTimeMillis() < drainDeadline) {
+            int taken = 0;
+            int b = 0;
+            for (int i = 0; i < numBuffers && taken == 0; i++) {
+                b = (start + i) % numBuffers;
+                taken = queues[b].drainTo(batch, 0, batchSize);
+            }
+            if (taken == 0) break;
+
+            consume(b, taken);
+            start = b;
+        }
+    }
+
+    /**
+     * Przetwarza paczkę pobraną z bufora. Bez okna kolejności od razu przez
+     * sink konsumenta; z oknem wkłada elementy do okna, a obsługa, ładunek,
+     * zliczenie i przekazanie dalej następują dopiero przy dostarczeniu w
+     * kolejności (sink konsumenta drenującego okno). Spóźnione elementy
+     * konsument przetwarza sam, poza kolejnością.
+     */
+    private void consume(int buffer, int taken) {
+        if (log != null) {
+            for (int i = 0; i < taken; i++) {
+                log.log(EventLog.TAKE, cid, buffer, ctx.logItem(batch[i]));
+            }
+        }
+        ReorderWindow window = ctx.window;
+        if (window == null) {
+            sink.process(batch, taken, buffer);
+            return;
+        }
+        PayloadArena arena = ctx.arena;
+        for (int i = 0; i < taken; i++) {
+            int item = (arena != null) ? arena.itemAt(batch[i]) : batch[i];
+            if (offerOrdered(window, window.sequence(item), batch[i], buffer, sink)) {
+                ctx.stats.addLate(cid);
+                sink.processLate(batch[i], buffer);
+            }
+        }
+    }
+
+    /**
+     * Najpełniejszy bufor poza exclude - sprawdza wszystkie przy
+     * B <= STEAL_PROBES, w przeciwnym razie STEAL_PROBES kolejnych od
+     * losowej pozycji. Przy grupach lokalności najpierw bufory własnej
+     * grupy, a obce dopiero, gdy wszystkie lokalne są puste. Zwraca -1,
+     * gdy wszystkie sprawdzone są puste.
+     */
+    private static int fullestBuffer(ItemBuffer[] queues, int exclude, SplittableRandom rand,
+                                     LocalityGroups locality, int group) {
+        if (locality != null && locality.groups() > 1) {
+            int first = locality.firstBuffer(group);
+            int end = (group + 1 < locality.groups()) ? locality.firstBuffer(group + 1) : queues.length;
+            int local = fullestBuffer(queues, first, end, exclude, rand);
+            if (local >= 0) return local;
+        }
+        return fullestBuffer(queues, 0, queues.length, exclude, rand);
+    }
+
+    /** Najpełniejszy bufor z przedziału [from, to) poza exclude. */
+    private static int fullestBuffer(ItemBuffer[] queues, int from, int to, int exclude,
+                                     SplittableRandom rand) {
+        int n = to - from;
+        int probes = Math.min(n, STEAL_PROBES);
+        int start = (n > STEAL_PROBES) ? rand.nextInt(n) : 0;
+
+        int best = -1;
+        int bestDepth = 0;
+        for (int i = 0; i < probes; i++) {
+            int b = start + i;
+            if (b >= n) b -= n;
+            b += from;
+            if (b == exclude) continue;
+
+            int depth = queues[b].size();
+            if (depth > bestDepth) {
+                best = b;
+                bestDepth = depth;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Wkłada element do okna kolejności. Przy pełnym oknie czeka, a po
+     * ORDER_GAP_TIMEOUT_NANOS pomija brakujące numery - element, który
+     * ich blokuje, mógł zostać w buforze albo w paczce producenta.
+     * @return true, gdy element jest spóźniony i trzeba go przetworzyć od razu
+     */
+    private static boolean offerOrdered(ReorderWindow window, long seq, int value, int buffer,
+                                        ReorderWindow.Delivery delivery) {
+        int result = window.offer(seq, value, buffer, delivery);
+        if (result == ReorderWindow.FULL) {
+            long deadline = System.nanoTime() + ORDER_GAP_TIMEOUT_NANOS;
+            int attempt = 0;
+            while ((result = window.offer(seq, value, buffer, delivery)) == ReorderWindow.FULL) {
+                if (System.nanoTime() - deadline > 0) {
+                    window.skipGap(delivery);
+                    deadline = System.nanoTime() + ORDER_GAP_TIMEOUT_NANOS;
+                } else if (attempt++ < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+        }
+        return result == ReorderWindow.LATE;
+    }
+}
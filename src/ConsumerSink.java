@@ -0,0 +1,96 @@
+/**
+ * Przetwarzanie elementów pobranych przez jednego konsumenta: obsługa z
+ * modelu obciążenia, odczyt i zwrot slotu ładunku, zliczenie pobranych i
+ * przekazanie do następnego etapu potoku.
+ *
+ * Bez okna kolejności konsument przetwarza od razu całą pobraną paczkę
+ * (process). Przy oknie elementy przychodzą przez deliver() w kolejności
+ * numerów - od konsumenta, który akurat drenuje okno, więc każdy konsument
+ * ma własną instancję i przetwarza także elementy pobrane przez innych.
+ * Dostarczone elementy są zbierane w paczkę i przetwarzane najpóźniej w
+ * endOfSeries(), jeszcze pod blokadą drenowania - następna seria, także
+ * innego konsumenta, nie wyprzedzi tej.
+ */
+final class ConsumerSink implements ReorderWindow.Delivery {
+
+    private final int cid;
+    private final RunStatistics stats;
+    private final PayloadArena arena;
+    private final Workload.Worker worker;
+    private final StageHandoff next;
+    private final int[] values;
+    private final int[] buffers;
+    private int pending = 0;
+
+    /**
+     * @param worker model obciążenia konsumenta (null = bez obsługi)
+     * @param next wejście następnego etapu (null = ostatni etap)
+     * @param capacity rozmiar paczki zbieranej z okna kolejności
+     */
+    ConsumerSink(int cid, RunStatistics stats, PayloadArena arena, Workload.Worker worker,
+                 StageHandoff next, int capacity) {
+        this.cid = cid;
+        this.stats = stats;
+        this.arena = arena;
+        this.worker = worker;
+        this.next = next;
+        this.values = new int[capacity];
+        this.buffers = new int[capacity];
+    }
+
+    /** Przetwarza count elementów pobranych z jednego bufora (batch[0..count)). */
+    void process(int[] batch, int count, int buffer) {
+        if (worker != null) worker.serve(batch, count);
+        release(batch, count);
+        stats.addConsumed(cid, buffer, count);
+        if (next != null) next.put(batch, count);
+    }
+
+    /** Pojedynczy element poza kolejnością (spóźniony względem okna). */
+    void processLate(int value, int buffer) {
+        values[pending] = value;
+        buffers[pending] = buffer;
+        pending++;
+        processPending();
+    }
+
+    @Override
+    public void deliver(int value, int buffer) {
+        values[pending] = value;
+        buffers[pending] = buffer;
+        if (++pending == values.length) processPending();
+    }
+
+    @Override
+    public void endOfSeries() {
+        if (pending > 0) processPending();
+    }
+
+    private void processPending() {
+        int count = pending;
+        pending = 0;
+        if (worker != null) worker.serve(values, count);
+        release(values, count);
+
+        // Zliczenie po seriach z jednego bufora - jedna operacja na serię
+        int from = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || buffers[i] != buffers[from]) {
+                stats.addConsumed(cid, buffers[from], i - from);
+                from = i;
+            }
+        }
+        if (next != null) next.put(values, count);
+    }
+
+    private void release(int[] batch, int count) {
+        if (arena == null) return;
+        for (int i = 0; i < count; i++) {
+            // Przetwarzanie na miejscu i zwrot slotu
+            if (arena.read(batch[i]) == PayloadArena.CORRUPT) {
+                stats.addCorruptPayload(cid);
+            }
+            arena.release(batch[i]);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Sposób wyboru bufora przez konsumenta.
+ * WEIGHTED - losowanie według wag i blokujący poll() na wybranym buforze (pierwotny).
+ * STEALING - nieblokująca próba na buforze z losowania, a gdy jest pusty -
+ *            pobranie z najpełniejszego innego bufora; czekanie dopiero
+ *            wtedy, gdy wszystkie sprawdzone bufory są puste.
+ */
+public enum ConsumerStrategy {
+    WEIGHTED,
+    STEALING;
+
+    static ConsumerStrategy parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieznana strategia konsumenta: " + name);
+        }
+    }
+}
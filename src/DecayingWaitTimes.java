@@ -0,0 +1,154 @@
+/**
+ * Agregacja czasów oczekiwania w dispatcherze z wygaszaniem wykładniczym.
+ *
+ * Próbka sprzed jednego okresu połowicznego (halfLifeNanos) waży połowę
+ * próbki bieżącej, więc tablica wag śledzi obecne zatłoczenie zamiast
+ * warunków ze startu. halfLifeNanos = 0 wyłącza wygaszanie (średnia z
+ * całego przebiegu, jak dawniej, ale w double - bez przepełnienia).
+ *
+ * Wygaszanie "w przód": zamiast mnożyć wszystkie sumy przy każdej próbce,
+ * nowa próbka dostaje wagę 2^((t - epoch) / halfLife). Średnia i percentyle
+ * to ilorazy sum, więc wspólny mnożnik się skraca - zapis jest O(1) i nie
+ * alokuje. Gdy waga urośnie do RESCALE_LIMIT, sumy są dzielone przez nią,
+ * a epoka przesuwana (raz na 32 okresy połowiczne).
+ *
+ * Percentyle pochodzą z histogramu o kubełkach logarytmiczno-liniowych
+ * (jak LatencyHistogram, ale 4 kubełki na potęgę dwójki - błąd do ~12%,
+ * wystarczający dla wag). Jeden pisarz - wątek dispatchera.
+ */
+final class DecayingWaitTimes {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_TRACKABLE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = indexOf(MAX_TRACKABLE) + 1;
+    private static final double RESCALE_LIMIT = 0x1p32;
+
+    private final int slots;
+    private final long halfLifeNanos;
+    private final double percentile;   // 0 = średnia
+    private final double[] weight;     // suma wag próbek
+    private final double[] sum;        // suma ważona czasów
+    private final double[] buckets;    // [slot * BUCKETS + kubełek] - tylko dla percentyli
+    private long epochNanos;
+    private long lastNanos;
+    private double scale = 1;          // waga próbki z chwili lastNanos
+
+    /**
+     * @param percentile statystyka podawana w tablicy: 0 = średnia,
+     *                   w przeciwnym razie percentyl z (0, 100]
+     */
+    DecayingWaitTimes(int slots, long halfLifeNanos, double percentile, long nowNanos) {
+        this.slots = slots;
+        this.halfLifeNanos = halfLifeNanos;
+        this.percentile = percentile;
+        this.weight = new double[slots];
+        this.sum = new double[slots];
+        this.buckets = (percentile > 0) ? new double[slots * BUCKETS] : null;
+        this.epochNanos = nowNanos;
+        this.lastNanos = nowNanos;
+    }
+
+    /** Dolicza próbki z żądania procesu; wartości <= 0 (brak pomiaru) są pomijane. */
+    void record(long[] waitTimes, long nowNanos) {
+        double w = weightAt(nowNanos);
+        for (int i = 0; i < waitTimes.length && i < slots; i++) {
+            long value = waitTimes[i];
+            if (value <= 0) continue;
+            weight[i] += w;
+            sum[i] += w * value;
+            if (buckets != null) {
+                buckets[i * BUCKETS + indexOf(Math.min(value, MAX_TRACKABLE))] += w;
+            }
+        }
+    }
+
+    /** Wybrana statystyka (średnia albo percentyl) dla każdego slotu, 0 gdy brak próbek. */
+    void values(long[] target) {
+        for (int i = 0; i < slots && i < target.length; i++) {
+            if (weight[i] <= 0) {
+                target[i] = 0;
+            } else if (buckets == null) {
+                target[i] = (long) (sum[i] / weight[i]);
+            } else {
+                target[i] = percentileOf(i);
+            }
+        }
+    }
+
+    /**
+     * Wagi slotów w jednostkach "próbek z chwili nowNanos" - do ważenia
+     * tablic różnych shardów, których epoki się różnią.
+     */
+    void weights(double[] target, long nowNanos) {
+        double current = weightAt(nowNanos);
+        for (int i = 0; i < slots && i < target.length; i++) {
+            target[i] = weight[i] / current;
+        }
+    }
+
+    /** Opis do raportu, np. "średnia, połowa po 1000 ms". */
+    static String describe(long halfLifeMillis, double percentile) {
+        String stat = (percentile > 0) ? "p" + formatPercentile(percentile) : "średnia";
+        return (halfLifeMillis > 0) ? stat + ", połowa po " + halfLifeMillis + " ms"
+                                    : stat + " z całego przebiegu";
+    }
+
+    static String formatPercentile(double percentile) {
+        return (percentile == Math.rint(percentile))
+            ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    private double weightAt(long nowNanos) {
+        if (halfLifeNanos <= 0) return 1;
+        if (nowNanos == lastNanos) return scale;
+        lastNanos = nowNanos;
+        scale = Math.pow(2, (double) (nowNanos - epochNanos) / halfLifeNanos);
+        if (scale >= RESCALE_LIMIT) {
+            rescale(scale);
+            epochNanos = nowNanos;
+            scale = 1;
+        }
+        return scale;
+    }
+
+    private void rescale(double divisor) {
+        for (int i = 0; i < slots; i++) {
+            weight[i] /= divisor;
+            sum[i] /= divisor;
+        }
+        if (buckets != null) {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] /= divisor;
+            }
+        }
+    }
+
+    private long percentileOf(int slot) {
+        double rank = percentile / 100.0 * weight[slot];
+        double seen = 0;
+        int base = slot * BUCKETS;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[base + b];
+            if (seen >= rank) return highestValueAt(b);
+        }
+        return highestValueAt(BUCKETS - 1);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
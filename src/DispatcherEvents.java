@@ -0,0 +1,154 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import java.util.Locale;
+
+/**
+ * Zdarzenia JFR systemu. Bez włączonego nagrywania (np.
+ * -XX:StartFlightRecording) shouldCommit() zwraca false. Zdarzenia z
+ * gorącej ścieżki (synchronizacja, timeout bufora, zmiana wag) są tworzone
+ * dopiero, gdy ich typ jest włączony - inaczej każde wywołanie alokowałoby
+ * obiekt zdarzenia. Pola tekstowe budowane są dopiero po shouldCommit().
+ *
+ * Podgląd: jfr print --events csp.* nagranie.jfr
+ */
+final class DispatcherEvents {
+
+    private static final EventType SYNC = EventType.getEventType(Sync.class);
+    private static final EventType BUFFER_TIMEOUT = EventType.getEventType(BufferTimeout.class);
+    private static final EventType WEIGHT_UPDATE = EventType.getEventType(WeightUpdate.class);
+
+    private DispatcherEvents() {
+    }
+
+    /** Czy nagrywanie obejmuje csp.DispatcherSync (sync() tworzy zdarzenie tylko wtedy). */
+    static boolean syncEnabled() {
+        return SYNC.isEnabled();
+    }
+
+    @Name("csp.DispatcherSync")
+    @Label("Synchronizacja z dispatcherem")
+    @Category({"CSP", "Dispatcher"})
+    @StackTrace(false)
+    static class Sync extends Event {
+        @Label("Producent")
+        boolean producer;
+
+        @Label("Proces")
+        int processId;
+
+        @Label("Nowa tablica")
+        @Description("Czy proces dostał nową tablicę czasów (timeout / brak nowej migawki = false)")
+        boolean updated;
+    }
+
+    @Name("csp.BufferTimeout")
+    @Label("Timeout bufora")
+    @Category({"CSP", "Bufory"})
+    @StackTrace(false)
+    static class BufferTimeout extends Event {
+        @Label("Wstawianie")
+        @Description("true - nieudane wstawienie producenta, false - pusty poll konsumenta")
+        boolean put;
+
+        @Label("Proces")
+        int processId;
+
+        @Label("Bufor")
+        int buffer;
+
+        @Label("Czekano")
+        @Timespan(Timespan.NANOSECONDS)
+        long waited;
+    }
+
+    @Name("csp.WeightUpdate")
+    @Label("Zmiana wag")
+    @Category({"CSP", "Dispatcher"})
+    @StackTrace(false)
+    static class WeightUpdate extends Event {
+        @Label("Producent")
+        boolean producer;
+
+        @Label("Proces")
+        int processId;
+
+        @Label("Oceny buforów")
+        @Description("Oceny polityki po przyjęciu tablicy z dispatchera")
+        String scores;
+    }
+
+    @Name("csp.PhaseChange")
+    @Label("Zmiana fazy przebiegu")
+    @Category({"CSP", "Przebieg"})
+    @StackTrace(false)
+    static class PhaseChange extends Event {
+        @Label("Faza")
+        String phase;
+    }
+
+    @Name("csp.Shutdown")
+    @Label("Zamknięcie")
+    @Description("Drenowanie po terminie - zastępuje dawne zdarzenie POISON")
+    @Category({"CSP", "Przebieg"})
+    @StackTrace(false)
+    static class Shutdown extends Event {
+        @Label("Zostawione w buforach")
+        long leftover;
+
+        @Label("Niewstawione")
+        long unplaced;
+    }
+
+    static void bufferTimeout(boolean put, int processId, int buffer, long waitedNanos) {
+        if (!BUFFER_TIMEOUT.isEnabled()) return;
+        BufferTimeout event = new BufferTimeout();
+        if (event.shouldCommit()) {
+            event.put = put;
+            event.processId = processId;
+            event.buffer = buffer;
+            event.waited = waitedNanos;
+            event.commit();
+        }
+    }
+
+    /** Oceny polityki po przyjęciu tablicy z dispatchera, np. "[0.310, 0.120, ...]". */
+    static void weightUpdate(boolean producer, int processId, BufferSelectionPolicy policy, 
+                             int numBuffers) {
+        if (!WEIGHT_UPDATE.isEnabled()) return;
+        WeightUpdate event = new WeightUpdate();
+        if (event.shouldCommit()) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int b = 0; b < numBuffers; b++) {
+                if (b > 0) sb.append(", ");
+                sb.append(String.format(Locale.ROOT, "%.3g", policy.score(b)));
+            }
+            event.producer = producer;
+            event.processId = processId;
+            event.scores = sb.append(']').toString();
+            event.commit();
+        }
+    }
+
+    static void phaseChange(RunPhase phase) {
+        PhaseChange event = new PhaseChange();
+        if (event.shouldCommit()) {
+            event.phase = phase.name();
+            event.commit();
+        }
+    }
+
+    static void shutdown(long leftover, long unplaced) {
+        Shutdown event = new Shutdown();
+        if (event.shouldCommit()) {
+            event.leftover = leftover;
+            event.unplaced = unplaced;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import org.jcsp.lang.*;
+
+/**
+ * Połączenie producenta/konsumenta z jego shardem dispatchera.
+ *
+ * W trybie CHANNEL wysyła tablicę czasów i czeka (najwyżej 100 ms) na
+ * odpowiedź. W trybie ASYNC wysyła tablicę do buforowanego kanału bez
+ * czekania na dispatcher i odczytuje ostatnią opublikowaną migawkę.
+ *
+ * Wymiana nie alokuje: proces ma jedno żądanie z własną tablicą (skrzynką),
+ * do której kopiuje czasy przed wysłaniem, a dispatcher wpisuje wynik w
+ * miejscu do jego odpowiedzi i odsyła ten sam obiekt. Po timeoucie
+ * odpowiedź na wysłane żądanie wciąż przyjdzie, więc kolejna synchronizacja
+ * czeka na nią zamiast wysyłać nowe żądanie - inaczej proces zablokowałby
+ * się na kanale żądań, a dispatcher na oddawaniu mu starej odpowiedzi.
+ */
+class DispatcherLink {
+
+    private static final long RESPONSE_TIMEOUT_MS = 100;
+
+    private final int processId;
+    // Końce kanałów raz - in()/out() w JCSP tworzą nowy obiekt przy każdym wywołaniu
+    private final ChannelOutput requests;
+    private final AltingChannelInput responses;   // null w trybie ASYNC
+    private final PublishedWaitTimes published;
+    private final int dispatcherSlot;
+    private final RunStatistics stats;
+    private final boolean producer;
+
+    private final CSTimer timer;
+    private final Alternative responseAlt;
+    private final WeightTableRequest request;
+    private final long[] received;   // ASYNC - kopia ostatniej migawki
+    private boolean awaitingReply = false;
+    private long lastVersion = 0;
+
+    DispatcherLink(int processId, Any2OneChannel requests, One2OneChannel responses,
+                   PublishedWaitTimes published, int dispatcherSlot,
+                   RunStatistics stats, boolean producer) {
+        this.processId = processId;
+        this.requests = requests.out();
+        this.responses = (responses != null) ? responses.in() : null;
+        this.published = published;
+        this.dispatcherSlot = dispatcherSlot;
+        this.stats = stats;
+        this.producer = producer;
+        this.timer = new CSTimer();
+        this.responseAlt = (responses != null)
+            ? new Alternative(new Guard[]{ this.responses, timer })
+            : null;
+        this.request = new WeightTableRequest(processId, new long[dispatcherSlot + 1],
+            (responses != null) ? new WeightTableResponse(new long[dispatcherSlot + 1]) : null);
+        this.received = (published != null) ? new long[dispatcherSlot + 1] : null;
+    }
+
+    boolean isAsync() {
+        return published != null;
+    }
+
+    /**
+     * Synchronizacja z dispatcherem. Zapisuje czas operacji w
+     * waitTimes[dispatcherSlot] i (łącznie z timeoutami) w statystykach
+     * oraz zdarzeniu JFR csp.DispatcherSync.
+     * @return zagregowana tablica czasów albo null (timeout / brak nowej migawki);
+     *         tablica należy do połączenia i jest nadpisywana przy kolejnym sync()
+     */
+    long[] sync(long[] waitTimes) {
+        // Bez nagrywania JFR nie twórz zdarzenia - sync() jest na gorącej ścieżce
+        DispatcherEvents.Sync event = DispatcherEvents.syncEnabled() ? new DispatcherEvents.Sync() : null;
+        if (event != null) event.begin();
+        long startTime = System.nanoTime();
+        long[] aggregated = null;
+        try {
+            aggregated = exchange(waitTimes, startTime);
+            return aggregated;
+        } finally {
+            stats.recordSync(producer, processId, System.nanoTime() - startTime);
+            if (event != null && event.shouldCommit()) {
+                event.producer = producer;
+                event.processId = processId;
+                event.updated = (aggregated != null);
+                event.commit();
+            }
+        }
+    }
+
+    private long[] exchange(long[] waitTimes, long startTime) {
+        try {
+            if (isAsync()) {
+                // Poprzednie żądanie jeszcze czeka w kanale - dispatcher nie nadąża
+                // i nie przeczytał skrzynki, więc tej tablicy nie wysyłamy
+                if (!request.pending) {
+                    System.arraycopy(waitTimes, 0, request.waitTimes, 0, request.waitTimes.length);
+                    request.pending = true;
+                    requests.write(request);
+                }
+
+                long version = published.readIfNewer(lastVersion, received);
+                waitTimes[dispatcherSlot] = System.nanoTime() - startTime;
+                if (version == lastVersion) return null;
+
+                lastVersion = version;
+                return received;
+            }
+
+            if (!awaitingReply) {
+                System.arraycopy(waitTimes, 0, request.waitTimes, 0, request.waitTimes.length);
+                requests.write(request);
+                awaitingReply = true;
+            }
+
+            timer.setAlarm(timer.read() + RESPONSE_TIMEOUT_MS);
+            if (responseAlt.priSelect() == 0) {
+                responses.read();
+                awaitingReply = false;
+                waitTimes[dispatcherSlot] = System.nanoTime() - startTime;
+                return request.reply.aggregatedWaitTimes;
+            }
+        } catch (Exception e) {
+            // Ignoruj błędy synchronizacji
+        }
+        return null;
+    }
+
+    /**
+     * Zgłoszenie zakończenia procesu do dispatchera. Najpierw zatruwa kanał
+     * odpowiedzi - dispatcher, który wciąż próbuje oddać odpowiedź na
+     * przeterminowane żądanie, dostaje PoisonException zamiast czekać na
+     * odczyt, który już nie nastąpi, i może odebrać to zgłoszenie.
+     */
+    void terminate() {
+        if (responses != null) {
+            responses.poison(1);
+        }
+        try {
+            requests.write(new WeightTableRequest(processId));
+        } catch (Exception e) {
+            // Ignoruj
+        }
+    }
+}
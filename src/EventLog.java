@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchroniczny dziennik zdarzeń w miejsce System.out.println przy print.
+ *
+ * Każdy proces pisze do własnego Writer - pierścienia rekordów o stałym
+ * rozmiarze (3 longi) z jednym pisarzem i jednym czytelnikiem, więc zapis
+ * to kilka zapisów do tablicy i jeden zapis release, bez locków, alokacji
+ * i formatowania tekstu. Wątek w tle co DRAIN_INTERVAL_NANOS przepisuje
+ * pierścienie do pliku mapowanego w pamięci. Gdy pierścień jest pełny,
+ * rekord jest pomijany i liczony - dziennik nigdy nie spowalnia procesu.
+ *
+ * Tekst w dawnej postaci odtwarza offline EventLogDecoder.
+ *
+ * Plik: nagłówek HEADER_BYTES (MAGIC z wersją, liczba shardów dispatchera,
+ * czas startu, liczba rekordów, liczba pominiętych), potem rekordy
+ * [nanos od startu][typ:16 | proces:24 | argument:24][wartość] w kolejności
+ * opróżniania - każdy pierścień chronologicznie, między pierścieniami nie.
+ */
+class EventLog implements AutoCloseable {
+
+    static final long MAGIC = 0x43_53_50_4C_4F_47_00_01L; // "CSPLOG" + wersja 1
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_LONGS = 3;
+    static final int RECORD_BYTES = RECORD_LONGS * Long.BYTES;
+
+    // Pozycje pól nagłówka
+    static final int HEADER_SHARDS = 8;
+    static final int HEADER_START_MILLIS = 16;
+    static final int HEADER_RECORDS = 24;
+    static final int HEADER_DROPPED = 32;
+
+    // Typy rekordów (argument / wartość)
+    static final int PUT = 1;                   // bufor / element
+    static final int SPILL = 2;                 // bufor / element
+    static final int TAKE = 3;                  // bufor / element
+    static final int PRODUCER_SYNCED = 4;
+    static final int PRODUCER_SYNC_TIMEOUT = 5;
+    static final int CONSUMER_SYNCED = 6;
+    static final int PRODUCER_FINISHED = 7;
+    static final int CONSUMER_FINISHED = 8;
+    static final int DISPATCHER_TERM = 9;       // id procesu / licznik << 32 | procesy sharda
+    static final int DISPATCHER_PUBLISHED = 10;
+    static final int DISPATCHER_SYNCED = 11;    // id procesu / -
+    static final int DISPATCHER_DONE = 12;
+
+    /** Dodawane do typu rekordu dispatchera producentów (proces = shard). */
+    static final int PRODUCER_SIDE = 0x100;
+
+    private static final int RING_RECORDS = 1 << 14;
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAP_CHUNK_BYTES = 64L << 20;   // nie wielokrotność RECORD_BYTES
+
+    private final long chunkBytes;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long startNanos = System.nanoTime();
+    private final CopyOnWriteArrayList<Writer> writers = new CopyOnWriteArrayList<>();
+    private final Thread drainer;
+    private volatile boolean closed = false;
+
+    // Stan wątku opróżniającego
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long records = 0;
+
+    EventLog(Path path, int dispatcherShards) throws IOException {
+        this(path, dispatcherShards, MAP_CHUNK_BYTES);
+    }
+
+    /** chunkBytes - rozmiar mapowanego fragmentu pliku (mały w testach). */
+    EventLog(Path path, int dispatcherShards, long chunkBytes) throws IOException {
+        if (chunkBytes < RECORD_BYTES) {
+            throw new IllegalArgumentException("Fragment dziennika mniejszy niż rekord: " + chunkBytes);
+        }
+        this.chunkBytes = chunkBytes;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        header = map(0, HEADER_BYTES);
+        header.putLong(0, MAGIC);
+        header.putLong(HEADER_SHARDS, dispatcherShards);
+        header.putLong(HEADER_START_MILLIS, System.currentTimeMillis());
+
+        chunkStart = HEADER_BYTES;
+        chunk = map(chunkStart, chunkBytes);
+
+        drainer = new Thread(this::drainLoop, "event-log-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /** Nowy pierścień dla procesu - wywoływane raz, na początku procesu. */
+    Writer writer() {
+        Writer writer = new Writer(startNanos);
+        writers.add(writer);
+        return writer;
+    }
+
+    /** Wartość rekordu z elementem: numer i slot ładunku (-1 bez ładunku). */
+    static long item(int item, int slot) {
+        return ((long) slot << 32) | (item & 0xFFFFFFFFL);
+    }
+
+    long records() {
+        return records;
+    }
+
+    long dropped() {
+        long dropped = 0;
+        for (Writer writer : writers) {
+            dropped += writer.dropped;
+        }
+        return dropped;
+    }
+
+    /** Opróżnia pierścienie do końca, zapisuje nagłówek i przycina plik. */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        header.putLong(HEADER_RECORDS, records);
+        header.putLong(HEADER_DROPPED, dropped());
+        header.force();
+        chunk.force();
+        try {
+            channel.truncate(HEADER_BYTES + records * RECORD_BYTES);
+        } catch (IOException e) {
+            // Np. Windows nie przycina zmapowanego pliku - długość jest w nagłówku
+        }
+        channel.close();
+    }
+
+    private void drainLoop() {
+        try {
+            while (!closed) {
+                drainAll();
+                LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+            }
+            drainAll();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Dziennik zdarzeń przerwany po " + records + " rekordach: " + e);
+        }
+    }
+
+    private void drainAll() throws IOException {
+        for (Writer writer : writers) {
+            long tail = writer.tail;
+            long head = writer.head.get();
+            for (; tail < head; tail++) {
+                // Nie hasRemaining() - na końcu fragmentu może zostać mniej niż rekord
+                if (chunk.remaining() < RECORD_BYTES) {
+                    chunkStart += chunk.position();
+                    chunk = map(chunkStart, chunkBytes);
+                }
+                int base = (int) (tail & (RING_RECORDS - 1)) * RECORD_LONGS;
+                chunk.putLong(writer.ring[base]);
+                chunk.putLong(writer.ring[base + 1]);
+                chunk.putLong(writer.ring[base + 2]);
+                records++;
+            }
+            writer.tail = tail;
+            writer.consumed.lazySet(tail);
+        }
+    }
+
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Pierścień jednego procesu. log() wywołuje tylko ten proces, a
+     * opróżnia tylko wątek dziennika.
+     */
+    static final class Writer {
+        private final long startNanos;
+        private final long[] ring = new long[RING_RECORDS * RECORD_LONGS];
+        private final PaddedLong head = new PaddedLong(0);      // zapisane przez proces
+        private final PaddedLong consumed = new PaddedLong(0);  // opróżnione przez wątek dziennika
+        private long tail = 0;         // kopia consumed po stronie wątku dziennika
+        private long cachedConsumed = 0;
+        private volatile long dropped = 0;
+
+        private Writer(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void log(int type, int process, int argument, long value) {
+            long h = head.get();
+            if (h - cachedConsumed >= RING_RECORDS) {
+                cachedConsumed = consumed.get();
+                if (h - cachedConsumed >= RING_RECORDS) {
+                    dropped++; // jedyny pisarz - wystarczy zapis volatile
+                    return;
+                }
+            }
+            int base = (int) (h & (RING_RECORDS - 1)) * RECORD_LONGS;
+            ring[base] = System.nanoTime() - startNanos;
+            ring[base + 1] = ((long) type << 48) | ((long) (process & 0xFFFFFF) << 24)
+                | (argument & 0xFFFFFF);
+            ring[base + 2] = value;
+            head.lazySet(h + 1);
+        }
+    }
+}
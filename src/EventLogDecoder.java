@@ -0,0 +1,168 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Odtwarza z pliku EventLog logi w postaci, jaką dawniej wypisywał
+ * TablicaDispatcher przy print, posortowane po czasie zdarzenia.
+ *
+ *   java -cp out:lib/jcsp.jar EventLogDecoder PLIK [--time] [--limit N]
+ *
+ * --time dodaje przed linią czas od startu dziennika w milisekundach.
+ */
+public class EventLogDecoder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Użycie: java EventLogDecoder PLIK [--time] [--limit N]");
+            System.exit(2);
+        }
+        boolean withTime = false;
+        long limit = Long.MAX_VALUE;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--time")) {
+                withTime = true;
+            } else if (args[i].equals("--limit") && i + 1 < args.length) {
+                limit = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("Nieznany argument: " + args[i]);
+                System.exit(2);
+            }
+        }
+        decode(Paths.get(args[0]), withTime, limit);
+    }
+
+    static void decode(Path path, boolean withTime, long limit) throws IOException {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        decode(path, withTime, limit, out);
+        out.flush();
+    }
+
+    /** Jak decode, ale linie trafiają do out (bez flush). */
+    static void decode(Path path, boolean withTime, long limit, PrintWriter out) throws IOException {
+        long[] times;
+        long[] metas;
+        long[] values;
+        int shards;
+        long dropped;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, EventLog.HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong(0) != EventLog.MAGIC) {
+                throw new IOException("To nie jest plik dziennika zdarzeń: " + path);
+            }
+            shards = (int) header.getLong(EventLog.HEADER_SHARDS);
+            dropped = header.getLong(EventLog.HEADER_DROPPED);
+
+            // Bez liczby w nagłówku (przebieg przerwany) - do pierwszego pustego rekordu
+            long count = header.getLong(EventLog.HEADER_RECORDS);
+            if (count == 0) {
+                count = (channel.size() - EventLog.HEADER_BYTES) / EventLog.RECORD_BYTES;
+            }
+            if (count > Integer.MAX_VALUE) {
+                throw new IOException("Za dużo rekordów do posortowania w pamięci: " + count);
+            }
+
+            times = new long[(int) count];
+            metas = new long[(int) count];
+            values = new long[(int) count];
+            int n = 0;
+            boolean reachedEmpty = false;
+            long position = EventLog.HEADER_BYTES;
+            long end = EventLog.HEADER_BYTES + count * EventLog.RECORD_BYTES;
+            while (position < end && !reachedEmpty) {
+                long size = Math.min(end - position, (Integer.MAX_VALUE / EventLog.RECORD_BYTES)
+                    * (long) EventLog.RECORD_BYTES);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+                while (chunk.remaining() >= EventLog.RECORD_BYTES) {
+                    times[n] = chunk.getLong();
+                    metas[n] = chunk.getLong();
+                    values[n] = chunk.getLong();
+                    if (metas[n] == 0) {
+                        reachedEmpty = true;
+                        break;
+                    }
+                    n++;
+                }
+                position += size;
+            }
+            count = n;
+
+            int[] order = IntStream.range(0, (int) count).boxed()
+                .sorted((a, b) -> Long.compare(times[a], times[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+            long printed = 0;
+            for (int i : order) {
+                if (printed++ >= limit) break;
+                if (withTime) {
+                    out.printf("[%12.6f ms] ", times[i] / 1e6);
+                }
+                out.println(line(metas[i], values[i], shards));
+            }
+            if (dropped > 0) {
+                out.println("(pominięto " + dropped + " rekordów - pełny pierścień procesu)");
+            }
+        }
+    }
+
+    /** Jedna linia w postaci z dawnych System.out.println. */
+    static String line(long meta, long value, int shards) {
+        int type = (int) (meta >>> 48);
+        int process = (int) ((meta >>> 24) & 0xFFFFFF);
+        int argument = (int) (meta & 0xFFFFFF);
+
+        boolean producerSide = (type & EventLog.PRODUCER_SIDE) != 0;
+        String client = producerSide ? "Producer" : "Consumer";
+        String dispatcher = (producerSide ? "ProducerDispatcher" : "ConsumerDispatcher")
+            + ((shards > 1) ? "[" + process + "]" : "");
+
+        switch (type & ~EventLog.PRODUCER_SIDE) {
+            case EventLog.PUT:
+                return "Producer[" + process + "]: " + item(value) + " -> Buffer[" + argument + "]";
+            case EventLog.SPILL:
+                return "Producer[" + process + "]: " + item(value) + " -> Buffer[" + argument + "] (spill)";
+            case EventLog.TAKE:
+                return "Consumer[" + process + "]: " + item(value) + " <- Buffer[" + argument + "]";
+            case EventLog.PRODUCER_SYNCED:
+                return "Producer[" + process + "]: Synced";
+            case EventLog.PRODUCER_SYNC_TIMEOUT:
+                return "Producer[" + process + "]: Sync timeout";
+            case EventLog.CONSUMER_SYNCED:
+                return "Consumer[" + process + "]: Synced";
+            case EventLog.PRODUCER_FINISHED:
+                return "Producer[" + process + "]: Finished";
+            case EventLog.CONSUMER_FINISHED:
+                return "Consumer[" + process + "]: Finished";
+            case EventLog.DISPATCHER_TERM:
+                return dispatcher + ": Term " + argument + " (" + (value >>> 32) + "/"
+                    + (int) value + ")";
+            case EventLog.DISPATCHER_PUBLISHED:
+                return dispatcher + ": Published";
+            case EventLog.DISPATCHER_SYNCED:
+                return dispatcher + ": Synced " + client + "[" + argument + "]";
+            case EventLog.DISPATCHER_DONE:
+                return dispatcher + ": Done";
+            default:
+                return "? typ " + type;
+        }
+    }
+
+    /** Numer elementu, przy ładunku "numer@slot" (jak itemLabel). */
+    private static String item(long value) {
+        int item = (int) value;
+        int slot = (int) (value >> 32);
+        return (slot >= 0) ? item + "@" + slot : String.valueOf(item);
+    }
+}
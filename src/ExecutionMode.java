@@ -0,0 +1,95 @@
+import org.jcsp.lang.*;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sposób uruchomienia procesów producentów i konsumentów.
+ *
+ * PLATFORM - Parallel z JCSP, jeden wątek systemowy na proces (pierwotny).
+ * VIRTUAL  - wątek wirtualny na proces (wymaga Javy 21+ w czasie działania).
+ *
+ * W trybie VIRTUAL dispatchery dostają własne wątki systemowe, bo procesy
+ * blokują się na kanałach do nich. Stałej puli wątków nie ma: procesy
+ * blokują się i nie oddają wątku, więc pula mniejsza niż P+K zatrzymałaby
+ * konsumentów do końca producentów, a pula P+K nie różni się od PLATFORM.
+ */
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    /** Uruchamia wszystkie procesy i czeka na ich zakończenie. */
+    void run(CSProcess[] workers, CSProcess[] dispatchers) {
+        if (this == PLATFORM) {
+            CSProcess[] all = new CSProcess[workers.length + dispatchers.length];
+            System.arraycopy(workers, 0, all, 0, workers.length);
+            System.arraycopy(dispatchers, 0, all, workers.length, dispatchers.length);
+            new Parallel(all).run();
+            return;
+        }
+
+        List<Thread> dispatcherThreads = new ArrayList<>();
+        for (int i = 0; i < dispatchers.length; i++) {
+            Thread thread = new Thread(dispatchers[i]::run, "dispatcher-" + i);
+            thread.start();
+            dispatcherThreads.add(thread);
+        }
+
+        ExecutorService executor = newVirtualThreadExecutor();
+        for (CSProcess worker : workers) {
+            executor.execute(worker::run);
+        }
+        executor.shutdown();
+
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Czekaj na zakończenie wszystkich procesów
+            }
+            for (Thread thread : dispatcherThreads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Executors.newVirtualThreadPerTaskExecutor() przez refleksję - kod celuje w Javę 11. */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Wątki wirtualne wymagają Javy 21 lub nowszej (jest "
+                + System.getProperty("java.version") + ")");
+        }
+    }
+
+    /** Czy tryb jest dostępny w bieżącej JVM. */
+    boolean isSupported() {
+        if (this != VIRTUAL) return true;
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    static ExecutionMode parse(String name) {
+        ExecutionMode mode;
+        try {
+            mode = valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieznany tryb wykonania: " + name);
+        }
+        if (!mode.isSupported()) {
+            throw new IllegalArgumentException("Tryb " + name + " wymaga Javy 21 lub nowszej (jest "
+                + System.getProperty("java.version") + ")");
+        }
+        return mode;
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bezblokadowy bufor pierścieniowy MPMC na wartościach int (algorytm Vyukova).
+ * Każdy slot ma własny numer sekwencji, więc producenci i konsumenci
+ * synchronizują się tylko przez CAS na kursorach head/tail - bez locków
+ * i bez alokacji. Pojemność jest zaokrąglana w górę do potęgi dwójki.
+ */
+class IntRingBuffer implements ItemBuffer {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 50_000; // 50 µs
+
+    private final int mask;
+    private final int[] items;
+    private final AtomicLongArray sequences;
+
+    private final PaddedLong head = new PaddedLong(0); // kursor konsumentów
+    private final PaddedLong tail = new PaddedLong(0); // kursor producentów
+
+    IntRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pojemność musi być dodatnia: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        this.mask = size - 1;
+        this.items = new int[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Próba wstawienia bez czekania. */
+    boolean tryOffer(int item) {
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long dif = sequences.get(idx) - pos;
+
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items[idx] = item;
+                    sequences.lazySet(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                return false; // pełny
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** Próba pobrania bez czekania - EMPTY, gdy bufor jest pusty. */
+    int tryPoll() {
+        long pos = head.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long dif = sequences.get(idx) - (pos + 1);
+
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    int item = items[idx];
+                    sequences.lazySet(idx, pos + mask + 1);
+                    return item;
+                }
+                pos = head.get();
+            } else if (dif < 0) {
+                return EMPTY; // pusty
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException {
+        if (tryOffer(item)) return true;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        while (!tryOffer(item)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            backoff(attempt++, remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public int poll(long timeout, TimeUnit unit) throws InterruptedException {
+        int item = tryPoll();
+        if (item != EMPTY) return item;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        while ((item = tryPoll()) == EMPTY) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return EMPTY;
+            backoff(attempt++, remaining);
+        }
+        return item;
+    }
+
+    @Override
+    public int offerBatch(int[] batch, int offset, int count, long timeout, TimeUnit unit) 
+            throws InterruptedException {
+        if (count <= 0 || !offer(batch[offset], timeout, unit)) return 0;
+
+        int placed = 1;
+        while (placed < count && tryOffer(batch[offset + placed])) {
+            placed++;
+        }
+        return placed;
+    }
+
+    @Override
+    public int drainTo(int[] dst, int offset, int max) {
+        int taken = 0;
+        int item;
+        while (taken < max && (item = tryPoll()) != EMPTY) {
+            dst[offset + taken++] = item;
+        }
+        return taken;
+    }
+
+    /** Czekanie stopniowe: aktywne, potem yield, potem krótkie parkowanie. */
+    private static void backoff(int attempt, long remainingNanos) throws InterruptedException {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(remainingNanos, PARK_NANOS));
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) return 0;
+        return (int) Math.min(size, capacity());
+    }
+
+    @Override
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bufor numerów elementów przekazywanych między producentami a konsumentami.
+ * Elementy są typu int (bez boxingu), a pusty wynik poll() sygnalizuje EMPTY.
+ * Elementy są nieujemne (item() dla numerów z licznika, indeksy slotów
+ * ładunku), więc żaden nie jest równy EMPTY.
+ */
+interface ItemBuffer {
+
+    /** Wartość zwracana przez poll(), gdy w buforze nie było elementu. */
+    int EMPTY = Integer.MIN_VALUE;
+
+    /**
+     * Element dla numeru sekwencyjnego: 31 młodszych bitów. Po 2^31 - 1
+     * numeracja wraca do 0, zamiast przejść przez wartości ujemne do EMPTY.
+     */
+    static int item(long sequence) {
+        return (int) (sequence & Integer.MAX_VALUE);
+    }
+
+    boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException;
+
+    int poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Wstawia do count elementów z tablicy items, począwszy od offset. Czeka
+     * (najwyżej timeout, 0 = wcale) tylko na miejsce dla pierwszego elementu,
+     * resztę wstawia bez czekania.
+     * @return liczba wstawionych elementów (items[offset..offset+n))
+     */
+    int offerBatch(int[] items, int offset, int count, long timeout, TimeUnit unit) 
+        throws InterruptedException;
+
+    /**
+     * Pobiera bez czekania do max elementów do dst, począwszy od offset.
+     * @return liczba pobranych elementów
+     */
+    int drainTo(int[] dst, int offset, int max);
+
+    /**
+     * Przybliżona liczba elementów w buforze. Odczyt bez blokady - na tyle
+     * tani, że konsumenci w trybie STEALING sprawdzają go w każdej iteracji.
+     */
+    int size();
+
+    int capacity();
+}
@@ -0,0 +1,80 @@
+/**
+ * Histogram opóźnień z kubełkami logarytmiczno-liniowymi (jak HdrHistogram).
+ *
+ * Każda potęga dwójki jest dzielona na SUB_BUCKETS równych kubełków, więc
+ * błąd względny wartości percentyla nie przekracza ~6%. Zapis nie alokuje
+ * pamięci i nie jest synchronizowany - histogram ma jednego pisarza,
+ * a histogramy różnych procesów scala się po przebiegu metodą add().
+ * Wartości powyżej 2^40 ns (~18 min) trafiają do ostatniego kubełka.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_TRACKABLE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = indexOf(MAX_TRACKABLE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount = 0;
+    private long maxValue = 0;
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[indexOf(Math.min(nanos, MAX_TRACKABLE))]++;
+        totalCount++;
+        if (nanos > maxValue) maxValue = nanos;
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        if (other.maxValue > maxValue) maxValue = other.maxValue;
+    }
+
+    long count() {
+        return totalCount;
+    }
+
+    long max() {
+        return maxValue;
+    }
+
+    /**
+     * Wartość, poniżej której (włącznie) leży podany procent próbek.
+     * Zwraca górną granicę kubełka, ale nie więcej niż zarejestrowane maksimum.
+     */
+    long percentile(double percent) {
+        if (totalCount == 0) return 0;
+
+        long rank = (long) Math.ceil(percent / 100.0 * totalCount);
+        if (rank < 1) rank = 1;
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Nagroda bandyty z czasu operacji, względna do średniego czasu procesu:
+ * skala/(skala + czas). Bufor przeciętny dostaje 0.5, dwa razy wolniejszy
+ * 0.33, dwa razy szybszy 0.67 - niezależnie od tego, czy operacje trwają
+ * mikro- czy milisekundy (przy 1/(1 + ms) wszystkie bufory miały nagrodę ~1
+ * i bandyta nie mógł ich odróżnić). Skala to średnia czasów udanych
+ * operacji na wszystkich buforach, wykładnicza po 1/minStep próbkach.
+ */
+final class LatencyReward {
+
+    private final double minStep;
+    private double scaleNanos = 0;
+    private long samples = 0;
+
+    LatencyReward(double minStep) {
+        this.minStep = minStep;
+    }
+
+    /** Nagroda w (0, 1] za udaną operację trwającą nanos na element. */
+    double reward(long nanos) {
+        samples++;
+        scaleNanos += Math.max(1.0 / samples, minStep) * (nanos - scaleNanos);
+        double scale = Math.max(scaleNanos, 1.0);
+        return scale / (scale + Math.max(nanos, 0));
+    }
+}
@@ -0,0 +1,211 @@
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Podgląd działającego systemu na żądanie (pull): głębokość buforów,
+ * liczniki i tempo, ostatnie tablice czasów z dispatcherów, średni czas
+ * synchronizacji i stan polityki każdego procesu (score() buforów po jego
+ * ostatniej synchronizacji). Nic nie jest liczone na gorącej ścieżce -
+ * snapshot() sumuje liczniki RunStatistics i czyta size() buforów, więc
+ * wartości z różnych liczników mogą się minimalnie rozjeżdżać.
+ *
+ * Tempo liczone jest względem poprzedniego wywołania snapshot() (przy
+ * pierwszym - od startu przebiegu).
+ */
+public class LiveMetrics {
+
+    private final ItemBuffer[] buffers;
+    private final RunStatistics stats;
+    private final PhaseController phases;
+
+    // Ostatnie tablice z dispatcherów (przy shardach - z dowolnego sharda)
+    private volatile long[] producerWaitTimes;
+    private volatile long[] consumerWaitTimes;
+
+    // Oceny buforów według polityki procesu (bity double), wiersz na proces;
+    // NaN w pierwszej kolumnie - proces jeszcze się nie synchronizował
+    private final AtomicLongArray[] producerScores;
+    private final AtomicLongArray[] consumerScores;
+
+    // Poprzednia próbka do liczenia tempa
+    private long lastNanos = System.nanoTime();
+    private long lastProduced = 0;
+    private long lastConsumed = 0;
+
+    LiveMetrics(ItemBuffer[] buffers, int producers, int consumers, RunStatistics stats,
+                PhaseController phases) {
+        this.buffers = buffers;
+        this.stats = stats;
+        this.phases = phases;
+        this.producerScores = scoreRows(producers, buffers.length);
+        this.consumerScores = scoreRows(consumers, buffers.length);
+    }
+
+    /** Tablica odpowiedzi dispatchera - od publikacji nie wolno jej modyfikować. */
+    void publishWaitTimes(boolean producer, long[] waitTimes) {
+        if (producer) {
+            producerWaitTimes = waitTimes;
+        } else {
+            consumerWaitTimes = waitTimes;
+        }
+    }
+
+    /**
+     * Stan polityki procesu po odpowiedzi dispatchera (onSync). Wiersz
+     * zapisuje tylko jego proces, bez alokacji; odczyt w snapshot() może
+     * złapać wiersz w trakcie zapisu.
+     */
+    void publishScores(boolean producer, int processId, BufferSelectionPolicy policy) {
+        AtomicLongArray row = (producer ? producerScores : consumerScores)[processId];
+        for (int b = 0; b < buffers.length; b++) {
+            row.lazySet(b, Double.doubleToRawLongBits(policy.score(b)));
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        long now = System.nanoTime();
+
+        snapshot.timestampMillis = System.currentTimeMillis();
+        snapshot.phase = phases.phase().name();
+        snapshot.produced = stats.produced();
+        snapshot.consumed = stats.consumed();
+
+        double seconds = (now - lastNanos) / 1e9;
+        if (seconds > 0) {
+            snapshot.producedPerSecond = (snapshot.produced - lastProduced) / seconds;
+            snapshot.consumedPerSecond = (snapshot.consumed - lastConsumed) / seconds;
+        }
+        lastNanos = now;
+        lastProduced = snapshot.produced;
+        lastConsumed = snapshot.consumed;
+
+        snapshot.depth = new int[buffers.length];
+        snapshot.consumedPerBuffer = new long[buffers.length];
+        for (int b = 0; b < buffers.length; b++) {
+            snapshot.depth[b] = buffers[b].size();
+            snapshot.consumedPerBuffer[b] = stats.consumedFromBuffer(b);
+        }
+        snapshot.capacity = (buffers.length > 0) ? buffers[0].capacity() : 0;
+
+        snapshot.producerWaitTimes = producerWaitTimes;
+        snapshot.consumerWaitTimes = consumerWaitTimes;
+        snapshot.producerScores = scores(producerScores);
+        snapshot.consumerScores = scores(consumerScores);
+
+        long[] syncs = stats.syncTotals();
+        snapshot.producerSyncs = syncs[0];
+        snapshot.producerSyncMeanUs = (syncs[0] > 0) ? syncs[1] / 1000.0 / syncs[0] : 0;
+        snapshot.consumerSyncs = syncs[2];
+        snapshot.consumerSyncMeanUs = (syncs[2] > 0) ? syncs[3] / 1000.0 / syncs[2] : 0;
+
+        snapshot.putTimeouts = stats.putTimeouts();
+        snapshot.spilled = stats.spilled();
+        snapshot.stolen = stats.stolen();
+        return snapshot;
+    }
+
+    private static AtomicLongArray[] scoreRows(int processes, int numBuffers) {
+        AtomicLongArray[] rows = new AtomicLongArray[processes];
+        for (int p = 0; p < processes; p++) {
+            rows[p] = new AtomicLongArray(numBuffers);
+            if (numBuffers > 0) rows[p].set(0, Double.doubleToRawLongBits(Double.NaN));
+        }
+        return rows;
+    }
+
+    private static double[][] scores(AtomicLongArray[] rows) {
+        double[][] scores = new double[rows.length][];
+        for (int p = 0; p < rows.length; p++) {
+            AtomicLongArray row = rows[p];
+            if (row.length() == 0 || Double.isNaN(Double.longBitsToDouble(row.get(0)))) continue;
+            scores[p] = new double[row.length()];
+            for (int b = 0; b < row.length(); b++) {
+                scores[p][b] = Double.longBitsToDouble(row.get(b));
+            }
+        }
+        return scores;
+    }
+
+    public static final class Snapshot {
+        public long timestampMillis;
+        public String phase;
+        public long produced;
+        public long consumed;
+        public double producedPerSecond;
+        public double consumedPerSecond;
+        public int capacity;
+        public int[] depth;
+        public long[] consumedPerBuffer;
+        public long[] producerWaitTimes;   // null przed pierwszą odpowiedzią dispatchera
+        public long[] consumerWaitTimes;
+        public double[][] producerScores;  // [proces][bufor], null przed pierwszą synchronizacją procesu
+        public double[][] consumerScores;
+        public long producerSyncs;
+        public double producerSyncMeanUs;
+        public long consumerSyncs;
+        public double consumerSyncMeanUs;
+        public long putTimeouts;
+        public long spilled;
+        public long stolen;
+
+        public String toJson() {
+            StringBuilder sb = new StringBuilder("{");
+            sb.append(String.format(Locale.ROOT,
+                "\"timestampMillis\": %d, \"phase\": \"%s\", \"produced\": %d, \"consumed\": %d, "
+                    + "\"producedPerSecond\": %.1f, \"consumedPerSecond\": %.1f, \"capacity\": %d, ",
+                timestampMillis, phase, produced, consumed, producedPerSecond, consumedPerSecond, capacity));
+            sb.append("\"depth\": ").append(array(depth)).append(", ");
+            sb.append("\"consumedPerBuffer\": ").append(array(consumedPerBuffer)).append(", ");
+            sb.append("\"producerWaitTimesNs\": ").append(array(producerWaitTimes)).append(", ");
+            sb.append("\"consumerWaitTimesNs\": ").append(array(consumerWaitTimes)).append(", ");
+            sb.append("\"producerScores\": ").append(array(producerScores)).append(", ");
+            sb.append("\"consumerScores\": ").append(array(consumerScores)).append(", ");
+            sb.append(String.format(Locale.ROOT,
+                "\"producerSyncs\": %d, \"producerSyncMeanUs\": %.1f, "
+                    + "\"consumerSyncs\": %d, \"consumerSyncMeanUs\": %.1f, "
+                    + "\"putTimeouts\": %d, \"spilled\": %d, \"stolen\": %d}",
+                producerSyncs, producerSyncMeanUs, consumerSyncs, consumerSyncMeanUs,
+                putTimeouts, spilled, stolen));
+            return sb.toString();
+        }
+
+        private static String array(int[] values) {
+            if (values == null) return "null";
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(values[i]);
+            }
+            return sb.append(']').toString();
+        }
+
+        private static String array(double[][] rows) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int p = 0; p < rows.length; p++) {
+                if (p > 0) sb.append(", ");
+                if (rows[p] == null) {
+                    sb.append("null");
+                    continue;
+                }
+                sb.append('[');
+                for (int b = 0; b < rows[p].length; b++) {
+                    if (b > 0) sb.append(", ");
+                    sb.append(String.format(Locale.ROOT, "%.4g", rows[p][b]));
+                }
+                sb.append(']');
+            }
+            return sb.append(']').toString();
+        }
+
+        private static String array(long[] values) {
+            if (values == null) return "null";
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(values[i]);
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Zmiana obciążenia w trakcie przebiegu: po afterMillis od startu czasu
+ * pierwsze slowBuffers buforów zaczyna obsługiwać wolna grupa konsumentów -
+ * każde pobranie z nich trwa dodatkowo delayNanos na element.
+ *
+ * Dispatcher konsumentów (shard 0) porównuje w każdej odpowiedzi średni
+ * czas wolnych buforów ze średnim czasem pozostałych. Tablica jest zbieżna,
+ * gdy różnica pokazuje co najmniej CONVERGED_SHARE dodanego opóźnienia.
+ * Średnia z całego przebiegu potrzebuje na to mniej więcej tylu próbek po
+ * zmianie, ile zebrała przed nią (czyli czasu rzędu afterMillis), średnia
+ * z wygaszaniem - około okresu połowicznego.
+ */
+final class LoadShift {
+
+    static final double CONVERGED_SHARE = 0.5;
+
+    private final PhaseController phases;
+    private final long afterNanos;
+    private final long delayNanos;
+    private final int slowBuffers;
+    private final int numBuffers;
+
+    private volatile long convergedNanos = -1; // od zmiany, -1 = jeszcze nie
+    private volatile double lastRatio = 0;
+
+    LoadShift(PhaseController phases, long afterMillis, long delayMicros, int numBuffers) {
+        this.phases = phases;
+        this.afterNanos = afterMillis * 1_000_000L;
+        this.delayNanos = delayMicros * 1_000L;
+        this.slowBuffers = Math.max(1, numBuffers / 4);
+        this.numBuffers = numBuffers;
+    }
+
+    /** Dodatkowy czas pobrania jednego elementu z bufora w chwili now (0 przed zmianą). */
+    long delayNanos(int buffer, long nowNanos) {
+        if (buffer >= slowBuffers || !shifted(nowNanos)) return 0;
+        return delayNanos;
+    }
+
+    /** Sprawdza tablicę odpowiedzi dispatchera - bez alokacji. */
+    void observe(long[] waitTimes, long nowNanos) {
+        if (!shifted(nowNanos) || slowBuffers >= numBuffers) return;
+
+        double slow = meanOf(waitTimes, 0, slowBuffers);
+        double fast = meanOf(waitTimes, slowBuffers, numBuffers);
+        if (fast <= 0) return;
+
+        lastRatio = slow / fast;
+        if (convergedNanos < 0 && slow - fast >= CONVERGED_SHARE * delayNanos) {
+            convergedNanos = nowNanos - phases.startNanos() - afterNanos;
+        }
+    }
+
+    /** Czas od zmiany do zbieżności w ms albo -1, gdy tablica nie nadążyła. */
+    long convergedMillis() {
+        long nanos = convergedNanos;
+        return (nanos < 0) ? -1 : nanos / 1_000_000;
+    }
+
+    /** Ostatni stosunek wolne/pozostałe z tablicy dispatchera. */
+    double lastRatio() {
+        return lastRatio;
+    }
+
+    String describe() {
+        return "bufory 0-" + (slowBuffers - 1) + " +" + delayNanos / 1_000 + " us/element po "
+            + afterNanos / 1_000_000 + " ms";
+    }
+
+    private boolean shifted(long nowNanos) {
+        long start = phases.startNanos();
+        return start != Long.MAX_VALUE && nowNanos - start >= afterNanos;
+    }
+
+    private static double meanOf(long[] values, int from, int to) {
+        long sum = 0;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (values[i] > 0) {
+                sum += values[i];
+                n++;
+            }
+        }
+        return (n > 0) ? (double) sum / n : 0;
+    }
+}
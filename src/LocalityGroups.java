@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Podział buforów i procesów na grupy lokalności (np. węzły NUMA).
+ *
+ * Bufory dzielone są na ciągłe przedziały: bufor b należy do grupy
+ * b * groups / B. Proces o id należy do grupy id % groups, osobno dla
+ * producentów i konsumentów, więc w każdej grupie są obie strony.
+ *
+ * Opcjonalne przypięcie wątków nie wymaga kodu natywnego: wątek odczytuje
+ * swój TID z /proc/thread-self i uruchamia taskset -p na procesorach grupy.
+ * Procesory grupy to cpulist węzła NUMA (group % liczba węzłów), a na
+ * maszynie z jednym węzłem - kolejna część /sys/devices/system/cpu/online.
+ * Poza Linuksem albo bez taskset przypięcie jest pomijane z ostrzeżeniem.
+ */
+final class LocalityGroups {
+
+    private static final long PIN_TIMEOUT_MS = 2000;
+
+    private final int groups;
+    private final int numBuffers;
+    private final String[] cpuLists; // null, gdy bez przypinania
+
+    LocalityGroups(int groups, int numBuffers, boolean pin) {
+        if (groups < 1 || groups > numBuffers) {
+            throw new IllegalArgumentException("Liczba grup musi być w [1, B]: " + groups);
+        }
+        this.groups = groups;
+        this.numBuffers = numBuffers;
+        this.cpuLists = pin ? cpuLists(groups) : null;
+    }
+
+    int groups() {
+        return groups;
+    }
+
+    int groupOfBuffer(int buffer) {
+        return (int) ((long) buffer * groups / numBuffers);
+    }
+
+    int groupOfProcess(int processId) {
+        return processId % groups;
+    }
+
+    /** Pierwszy bufor grupy (bufory grupy to [firstBuffer(g), firstBuffer(g + 1))). */
+    int firstBuffer(int group) {
+        return (int) (((long) group * numBuffers + groups - 1) / groups);
+    }
+
+    boolean isLocal(int group, int buffer) {
+        return groupOfBuffer(buffer) == group;
+    }
+
+    /**
+     * Przypina bieżący wątek systemowy do procesorów grupy.
+     * @return false, gdy przypięcie się nie udało (powód na System.err)
+     */
+    boolean pinCurrentThread(int group) {
+        if (cpuLists == null) return true;
+        try {
+            String tid = Paths.get("/proc/thread-self").toRealPath().getFileName().toString();
+            Process taskset = new ProcessBuilder("taskset", "-p", "-c", cpuLists[group], tid)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            if (!taskset.waitFor(PIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                taskset.destroy();
+                System.err.println("Ostrzeżenie: taskset nie odpowiada - wątek nieprzypięty");
+                return false;
+            }
+            if (taskset.exitValue() != 0) {
+                System.err.println("Ostrzeżenie: taskset zakończył się kodem " + taskset.exitValue());
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ostrzeżenie: nie można przypiąć wątku: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Bufory (i procesory) grup do raportu, np. "[0-1 | 2-3] cpu [0-7 | 8-15]". */
+    String describe() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int g = 0; g < groups; g++) {
+            if (g > 0) sb.append(" | ");
+            int first = firstBuffer(g);
+            int last = ((g + 1 < groups) ? firstBuffer(g + 1) : numBuffers) - 1;
+            sb.append(first);
+            if (last > first) sb.append('-').append(last);
+        }
+        sb.append(']');
+        if (cpuLists != null) {
+            sb.append(" cpu [").append(String.join(" | ", cpuLists)).append(']');
+        }
+        return sb.toString();
+    }
+
+    private static String[] cpuLists(int groups) {
+        String[] lists = new String[groups];
+        List<String> nodes = nodeCpuLists();
+        if (nodes.size() > 1) {
+            for (int g = 0; g < groups; g++) {
+                lists[g] = nodes.get(g % nodes.size());
+            }
+            return lists;
+        }
+
+        // Jeden węzeł - dzielimy dostępne procesory na równe części
+        List<Integer> cpus = parseCpuList(read(Paths.get("/sys/devices/system/cpu/online")));
+        if (cpus.isEmpty()) {
+            for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+                cpus.add(i);
+            }
+        }
+        for (int g = 0; g < groups; g++) {
+            int from = g * cpus.size() / groups;
+            int to = Math.max((g + 1) * cpus.size() / groups, from + 1);
+            StringBuilder sb = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                if (sb.length() > 0) sb.append(',');
+                sb.append(cpus.get(i % cpus.size()));
+            }
+            lists[g] = sb.toString();
+        }
+        return lists;
+    }
+
+    private static List<String> nodeCpuLists() {
+        List<String> lists = new ArrayList<>();
+        for (int node = 0; ; node++) {
+            String list = read(Paths.get("/sys/devices/system/node/node" + node + "/cpulist"));
+            if (list == null) break;
+            if (!list.isEmpty()) lists.add(list); // węzły bez procesorów (sama pamięć) pomijamy
+        }
+        return lists;
+    }
+
+    /** "0-3,8,10-11" -> [0, 1, 2, 3, 8, 10, 11]. */
+    static List<Integer> parseCpuList(String list) {
+        List<Integer> cpus = new ArrayList<>();
+        if (list == null || list.isEmpty()) return cpus;
+        for (String part : list.split(",")) {
+            int dash = part.indexOf('-');
+            int from = Integer.parseInt(part.substring(0, (dash >= 0) ? dash : part.length()).trim());
+            int to = (dash >= 0) ? Integer.parseInt(part.substring(dash + 1).trim()) : from;
+            for (int cpu = from; cpu <= to; cpu++) {
+                cpus.add(cpu);
+            }
+        }
+        return cpus;
+    }
+
+    private static String read(Path path) {
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
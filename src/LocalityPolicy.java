@@ -0,0 +1,85 @@
+import java.util.SplittableRandom;
+
+/**
+ * Nakładka na dowolną politykę, która faworyzuje bufory z grupy procesu.
+ *
+ * Wybór bufora spoza grupy jest przyjmowany z prawdopodobieństwem
+ * remoteShare, w przeciwnym razie polityka losuje ponownie (najwyżej
+ * MAX_REDRAWS razy). Dla WEIGHTED daje to w przybliżeniu losowanie z wagami
+ * buforów obcych przemnożonymi przez remoteShare. Gdy i ostatnie losowanie
+ * trafi poza grupę (wiele grup, polityka deterministyczna jak UCB), wybierany
+ * jest najlepiej oceniany bufor grupy. Ruch między grupami zostaje jako
+ * rezerwa: przyjęte wybory obce oraz przelewanie i podbieranie po lokalnych.
+ *
+ * Dispatcher (numBuffers) nie należy do żadnej grupy i jest zawsze przyjmowany.
+ */
+class LocalityPolicy implements BufferSelectionPolicy {
+
+    private static final int MAX_REDRAWS = 3;
+
+    private final BufferSelectionPolicy delegate;
+    private final LocalityGroups locality;
+    private final int group;
+    private final int numBuffers;
+    private final double remoteShare;
+    private final SplittableRandom rand;
+
+    LocalityPolicy(BufferSelectionPolicy delegate, LocalityGroups locality, int group,
+                   int numBuffers, double remoteShare, SplittableRandom rand) {
+        this.delegate = delegate;
+        this.locality = locality;
+        this.group = group;
+        this.numBuffers = numBuffers;
+        this.remoteShare = remoteShare;
+        this.rand = rand;
+    }
+
+    @Override
+    public int select() {
+        int selected = delegate.select();
+        for (int draw = 0; draw <= MAX_REDRAWS; draw++) {
+            if (selected == numBuffers || locality.isLocal(group, selected)
+                    || rand.nextDouble() < remoteShare) {
+                return selected;
+            }
+            if (draw < MAX_REDRAWS) selected = delegate.select();
+        }
+        return bestLocal();
+    }
+
+    @Override
+    public void onSuccess(int buffer, long nanosPerItem) {
+        delegate.onSuccess(buffer, nanosPerItem);
+    }
+
+    @Override
+    public void onMiss(int buffer, long waitedNanos) {
+        delegate.onMiss(buffer, waitedNanos);
+    }
+
+    @Override
+    public void onSync(long[] aggregatedWaitTimes) {
+        delegate.onSync(aggregatedWaitTimes);
+    }
+
+    @Override
+    public double score(int buffer) {
+        // Pierwszeństwo lokalnych przy przelewaniu zapewnia sortByScore
+        return delegate.score(buffer);
+    }
+
+    private int bestLocal() {
+        int first = locality.firstBuffer(group);
+        int end = (group + 1 < locality.groups()) ? locality.firstBuffer(group + 1) : numBuffers;
+        int best = first;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int b = first; b < end; b++) {
+            double score = delegate.score(b);
+            if (score > bestScore) {
+                best = b;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Trwały bufor: cykliczny segment w pliku mapowanym do pamięci. Elementy,
+ * które nie zostały pobrane, przeżywają zabicie JVM - po ponownym otwarciu
+ * tego samego pliku bufor zaczyna od nich.
+ *
+ * Plik: nagłówek HEADER_BYTES (MAGIC, pojemność, indeks zatwierdzenia,
+ * kursor odczytu), a po nim capacity slotów int. Indeksy rosną bez końca,
+ * slot to indeks % capacity. Producent zapisuje paczkę do slotów i dopiero
+ * potem przesuwa indeks zatwierdzenia (zapis z release), więc po awarii
+ * w pliku nie ma zatwierdzonych slotów bez treści. Konsument przesuwa kursor
+ * odczytu przy pobraniu - element pobrany tuż przed awarią, a nie
+ * przetworzony, jest stracony (co najwyżej raz, nie co najmniej raz).
+ *
+ * Wstawianie i pobieranie to zapisy do pamięci pod lockiem (jak
+ * ArrayBlockingQueue), bez wywołań systemowych - stronami zajmuje się
+ * system operacyjny. force() przy close() zapisuje je na dysk, więc
+ * zamknięty bufor przeżywa też awarię systemu, a działający - tylko
+ * zabicie procesu.
+ */
+class MappedItemBuffer implements ItemBuffer {
+
+    private static final long MAGIC = 0x5444425546303031L; // "TDBUF001"
+    private static final int HEADER_BYTES = 64;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COMMIT_OFFSET = 16;
+    private static final int READ_OFFSET = 24;
+
+    private static final VarHandle LONGS =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int capacity;
+    private final MappedByteBuffer map;
+    private final long recovered;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // Kopie indeksów z nagłówka - zapisywane pod lockiem, czytane też bez niego w size()
+    private volatile long commit;
+    private volatile long read;
+
+    /**
+     * Otwiera segment w pliku file albo tworzy nowy. Istniejący musi mieć tę
+     * samą pojemność - jego niepobrane elementy są od razu w buforze.
+     */
+    MappedItemBuffer(Path file, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pojemność musi być dodatnia: " + capacity);
+        }
+        this.capacity = capacity;
+        long size = HEADER_BYTES + (long) capacity * Integer.BYTES;
+
+        boolean existing = Files.exists(file) && Files.size(file) > 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (existing && channel.size() != size) {
+                throw new IOException("Segment " + file + " ma " + channel.size()
+                    + " bajtów, oczekiwano " + size + " (inna pojemność?)");
+            }
+            // Mapowanie zostaje ważne po zamknięciu kanału
+            this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        map.order(ByteOrder.nativeOrder());
+
+        if (existing) {
+            if (map.getLong(0) != MAGIC || map.getInt(CAPACITY_OFFSET) != capacity) {
+                throw new IOException("Segment " + file + " nie jest buforem o pojemności " + capacity);
+            }
+            long c = (long) LONGS.getAcquire(map, COMMIT_OFFSET);
+            long r = (long) LONGS.getAcquire(map, READ_OFFSET);
+            if (r < 0 || c < r || c - r > capacity) {
+                throw new IOException("Uszkodzone indeksy segmentu " + file + ": zatwierdzone " + c
+                    + ", odczytane " + r);
+            }
+            this.commit = c;
+            this.read = r;
+        } else {
+            map.putInt(CAPACITY_OFFSET, capacity);
+            LONGS.setRelease(map, COMMIT_OFFSET, 0L);
+            LONGS.setRelease(map, READ_OFFSET, 0L);
+            // Magia na końcu - niedokończony nagłówek nie wygląda na poprawny segment
+            LONGS.setRelease(map, 0, MAGIC);
+        }
+        this.recovered = commit - read;
+    }
+
+    /** Liczba elementów zastanych w segmencie przy otwarciu. */
+    long recovered() {
+        return recovered;
+    }
+
+    @Override
+    public boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (commit - read == capacity) {
+                if (nanos <= 0) return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            append(item);
+            publish(commit + 1);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (commit == read) {
+                if (nanos <= 0) return EMPTY;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int item = slot(read);
+            advance(read + 1);
+            notFull.signal();
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int offerBatch(int[] items, int offset, int count, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (count <= 0) return 0;
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (commit - read == capacity) {
+                if (nanos <= 0) return 0;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            int n = (int) Math.min(count, capacity - (commit - read));
+            long end = commit;
+            for (int i = 0; i < n; i++) {
+                map.putInt(slotOffset(end++), items[offset + i]);
+            }
+            // Jedno zatwierdzenie na paczkę
+            publish(end);
+            signal(notEmpty, n);
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(int[] dst, int offset, int max) {
+        if (max <= 0 || commit == read) return 0;
+        lock.lock();
+        try {
+            int n = (int) Math.min(max, commit - read);
+            long pos = read;
+            for (int i = 0; i < n; i++) {
+                dst[offset + i] = slot(pos++);
+            }
+            advance(pos);
+            signal(notFull, n);
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        long size = commit - read;
+        return (size < 0) ? 0 : (int) Math.min(size, capacity);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Zapisuje strony segmentu na dysk - po nim elementy przeżyją też awarię systemu. */
+    void close() {
+        lock.lock();
+        try {
+            map.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Budzi najwyżej n czekających - jak drainTo w ArrayBlockingQueue. */
+    private void signal(Condition condition, int n) {
+        for (; n > 0 && lock.hasWaiters(condition); n--) {
+            condition.signal();
+        }
+    }
+
+    private void append(int item) {
+        map.putInt(slotOffset(commit), item);
+    }
+
+    private int slot(long index) {
+        return map.getInt(slotOffset(index));
+    }
+
+    private int slotOffset(long index) {
+        return HEADER_BYTES + (int) (index % capacity) * Integer.BYTES;
+    }
+
+    private void publish(long newCommit) {
+        LONGS.setRelease(map, COMMIT_OFFSET, newCommit);
+        commit = newCommit;
+    }
+
+    private void advance(long newRead) {
+        LONGS.setRelease(map, READ_OFFSET, newRead);
+        read = newRead;
+    }
+}
@@ -0,0 +1,50 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lokalny serwer HTTP (tylko loopback) z migawką LiveMetrics w JSON:
+ *
+ *   curl http://127.0.0.1:PORT/metrics
+ *
+ * Żądania obsługuje jeden wątek serwera - odczyt migawki nie dotyka
+ * procesów, więc podgląd nie zmienia przebiegu (w przeciwieństwie do print).
+ */
+class MetricsHttpExporter implements AutoCloseable {
+
+    private final HttpServer server;
+
+    /** @param port 0 = dowolny wolny port (patrz port()) */
+    MetricsHttpExporter(int port, LiveMetrics metrics) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body;
+            int status;
+            if ("GET".equals(exchange.getRequestMethod())) {
+                body = (metrics.snapshot().toJson() + "\n").getBytes(StandardCharsets.UTF_8);
+                status = 200;
+            } else {
+                body = new byte[0];
+                status = 405;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, (body.length > 0) ? body.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,115 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Pula slotów na ładunek elementów poza stertą (bezpośredni ByteBuffer).
+ *
+ * Producent pobiera wolny slot, zapisuje w nim rekord i przez bufor
+ * przekazuje tylko indeks slotu. Konsument czyta rekord na miejscu i oddaje
+ * slot do listy wolnych - dane nie są kopiowane ani alokowane na stercie.
+ * Lista wolnych to IntRingBuffer, więc pobranie i zwrot są bez locków.
+ *
+ * Rekord: słowo 0 to numer elementu, kolejne słowa i bajty końcowe są
+ * wyliczane z numeru, więc konsument może sprawdzić, czy slot nie został
+ * nadpisany przed odczytem (błąd przekazania).
+ */
+class PayloadArena {
+
+    /** Wynik read(), gdy zawartość slotu nie zgadza się z numerem elementu. */
+    static final int CORRUPT = Integer.MIN_VALUE;
+
+    private final ByteBuffer arena;
+    private final int payloadSize;
+    private final int stride;
+    private final IntRingBuffer free;
+
+    PayloadArena(int slots, int payloadSize) {
+        if (payloadSize < Long.BYTES) {
+            throw new IllegalArgumentException("Ładunek musi mieć >= 8 bajtów: " + payloadSize);
+        }
+        long bytes = (long) slots * ((payloadSize + 7) & ~7);
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Arena ładunku za duża: " + bytes + " B");
+        }
+
+        this.payloadSize = payloadSize;
+        this.stride = (payloadSize + 7) & ~7; // sloty wyrównane do 8 bajtów
+        this.arena = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        this.free = new IntRingBuffer(slots);
+        for (int i = 0; i < slots; i++) {
+            free.tryOffer(i);
+        }
+    }
+
+    int payloadSize() {
+        return payloadSize;
+    }
+
+    /**
+     * Pobiera wolny slot. Pula jest liczona na wszystkie sloty, które mogą
+     * być naraz w buforach i paczkach procesów, więc czekanie jest krótkie.
+     */
+    int acquire() {
+        int slot;
+        int attempt = 0;
+        while ((slot = free.tryPoll()) == ItemBuffer.EMPTY) {
+            if (attempt++ < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return slot;
+    }
+
+    void release(int slot) {
+        free.tryOffer(slot);
+    }
+
+    /** Zapisuje rekord elementu item w slocie (absolutne zapisy - bez stanu bufora). */
+    void write(int slot, int item) {
+        int base = slot * stride;
+        int words = payloadSize / Long.BYTES;
+
+        arena.putLong(base, item);
+        for (int w = 1; w < words; w++) {
+            arena.putLong(base + w * Long.BYTES, word(item, w));
+        }
+        long tail = word(item, words);
+        for (int b = words * Long.BYTES; b < payloadSize; b++) {
+            arena.put(base + b, (byte) (tail >>> (8 * (b & 7))));
+        }
+    }
+
+    /**
+     * Czyta i sprawdza rekord ze slotu.
+     * @return numer elementu albo CORRUPT, gdy zawartość się nie zgadza
+     */
+    int read(int slot) {
+        int base = slot * stride;
+        int words = payloadSize / Long.BYTES;
+
+        long first = arena.getLong(base);
+        int item = (int) first;
+        boolean intact = (first == item);
+        for (int w = 1; w < words; w++) {
+            intact &= (arena.getLong(base + w * Long.BYTES) == word(item, w));
+        }
+        long tail = word(item, words);
+        for (int b = words * Long.BYTES; b < payloadSize; b++) {
+            intact &= (arena.get(base + b) == (byte) (tail >>> (8 * (b & 7))));
+        }
+        return intact ? item : CORRUPT;
+    }
+
+    /** Numer elementu bez sprawdzania rekordu (do logów). */
+    int itemAt(int slot) {
+        return (int) arena.getLong(slot * stride);
+    }
+
+    private static long word(int item, int index) {
+        long x = item * 0x9E3779B97F4A7C15L + index;
+        x ^= x >>> 31;
+        return x * 0xBF58476D1CE4E5B9L;
+    }
+}
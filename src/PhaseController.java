@@ -0,0 +1,142 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sterownik faz przebiegu: STARTING -> WARMUP -> MEASURE -> COOLDOWN -> STOPPED.
+ *
+ * Procesy sprawdzają tylko pole volatile z fazą (running()), zamiast
+ * odczytywać zegar w każdej iteracji. Zegar odczytują wyłącznie przed
+ * blokującym oczekiwaniem (waitMillis()), żeby nie czekać dłużej niż do
+ * końca przebiegu.
+ *
+ * Czas zaczyna biec, gdy wszystkie procesy się zgłoszą (processStarted()),
+ * najwyżej po START_TIMEOUT_MS (zabezpieczenie na wypadek procesu, który
+ * nie wystartował, np. z powodu błędu). Na granicach okna
+ * pomiaru sterownik zapisuje migawki statystyk, więc liczniki na gorącej
+ * ścieżce nie muszą znać fazy. Pomiar i wygaszanie są odliczane od końca
+ * migawki, która je otwiera - pierwsza migawka i pierwsze zdarzenia JFR
+ * ładują klasy i nie mogą skracać okna pomiaru.
+ */
+class PhaseController implements Runnable {
+
+    private static final long START_TIMEOUT_MS = 1000;
+
+    private final RunStatistics[] stats;
+    private final CountDownLatch started;
+    private final long warmupNanos;
+    private final long measureNanos;
+    private final long cooldownNanos;
+    private final long createdNanos = System.nanoTime();
+
+    private volatile RunPhase phase = RunPhase.STARTING;
+    private volatile long stopAtNanos = Long.MAX_VALUE;
+    private volatile long startNanos = Long.MAX_VALUE;
+
+    PhaseController(RunStatistics stats, int processes, long warmupMillis,
+                    long measureMillis, long cooldownMillis) {
+        this(new RunStatistics[]{ stats }, processes, warmupMillis, measureMillis, cooldownMillis);
+    }
+
+    /** Wspólne fazy kilku systemów (etapów potoku) - migawki w każdych statystykach. */
+    PhaseController(RunStatistics[] stats, int processes, long warmupMillis,
+                    long measureMillis, long cooldownMillis) {
+        this.stats = stats;
+        this.started = new CountDownLatch(processes);
+        this.warmupNanos = TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        this.measureNanos = TimeUnit.MILLISECONDS.toNanos(measureMillis);
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+    }
+
+    /** Uruchamia sterownik w osobnym wątku (demon). */
+    void start() {
+        Thread thread = new Thread(this, "phase-controller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Wywoływane przez każdy proces na początku działania. */
+    void processStarted() {
+        started.countDown();
+    }
+
+    /** Czy procesy mają dalej pracować (każda faza przed STOPPED). */
+    boolean running() {
+        return phase != RunPhase.STOPPED;
+    }
+
+    RunPhase phase() {
+        return phase;
+    }
+
+    /**
+     * Czas oczekiwania do wykorzystania przed blokującą operacją: najwyżej
+     * cap, ale nie dłużej niż do końca przebiegu.
+     * @return 0, gdy przebieg już się skończył
+     */
+    long waitMillis(long cap) {
+        if (!running()) return 0;
+        long left = stopAtNanos - System.nanoTime();
+        if (left <= 0) return 0;
+        return Math.min(cap, Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+    }
+
+    /** Chwila, od której biegnie czas przebiegu (Long.MAX_VALUE przed startem). */
+    long startNanos() {
+        return startNanos;
+    }
+
+    /** Chwila przejścia do STOPPED (System.nanoTime()). */
+    long stopAtNanos() {
+        return stopAtNanos;
+    }
+
+    @Override
+    public void run() {
+        try {
+            started.await(START_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long start = System.nanoTime();
+        for (RunStatistics s : stats) {
+            s.recordStartup(TimeUnit.NANOSECONDS.toMillis(start - createdNanos));
+        }
+        stopAtNanos = start + warmupNanos + measureNanos + cooldownNanos;
+        startNanos = start;
+
+        setPhase(RunPhase.WARMUP);
+        sleepUntil(start + warmupNanos);
+
+        for (RunStatistics s : stats) {
+            s.markMeasureStart();
+        }
+        long measureStart = System.nanoTime();
+        // Koniec tylko się przesuwa - procesy ograniczają nim czekanie
+        stopAtNanos = Math.max(stopAtNanos, measureStart + measureNanos + cooldownNanos);
+        setPhase(RunPhase.MEASURE);
+        sleepUntil(measureStart + measureNanos);
+
+        for (RunStatistics s : stats) {
+            s.markMeasureEnd();
+        }
+        stopAtNanos = Math.max(stopAtNanos, System.nanoTime() + cooldownNanos);
+        setPhase(RunPhase.COOLDOWN);
+        sleepUntil(stopAtNanos);
+
+        setPhase(RunPhase.STOPPED);
+    }
+
+    private void setPhase(RunPhase next) {
+        phase = next;
+        DispatcherEvents.phaseChange(next);
+    }
+
+    private static void sleepUntil(long deadline) {
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
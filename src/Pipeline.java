@@ -0,0 +1,295 @@
+import org.jcsp.lang.*;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Potok wieloetapowy, np. parse -> enrich -> aggregate, zbudowany z
+ * systemów TablicaDispatcher. Każdy etap ma własne bufory, dispatchery i
+ * tablice wag, a procesy etapu N (jego konsumenci) są od razu producentami
+ * etapu N+1 - wstawiają pobrane paczki do jego buforów przez StageHandoff,
+ * bez dodatkowych wątków pomiędzy. Pełne bufory etapu zatrzymują procesy
+ * poprzedniego, więc przeciwciśnienie dochodzi aż do źródeł.
+ *
+ * Wszystkie etapy mają wspólny sterownik faz (okno pomiaru) i są
+ * uruchamiane razem, a raport zestawia przepustowość i opóźnienia etapów.
+ * Opcje przebiegu (exec, warmup-ms, cooldown-ms) są brane z
+ * opcji wspólnych, pozostałe można nadpisać dla etapu. Elementy przechodzą
+ * przez etapy jako numery, więc payload, metrics i log nie są obsługiwane,
+ * a order tylko w ostatnim etapie. Z backend=mapped każdy etap trzyma
+ * segmenty w podkatalogu store o swojej nazwie.
+ *
+ * Przykład:
+ *   Pipeline pipeline = Pipeline.builder(4, 10)
+ *       .stage("parse", 8, 4)
+ *       .stage("enrich", 8, 4, "policy=ucb")
+ *       .stage("aggregate", 4, 2)
+ *       .options("backend=ring", "batch=16")
+ *       .build();
+ *   pipeline.run();
+ *   System.out.print(pipeline.report());
+ *
+ * albo z wiersza poleceń:
+ *   java Pipeline --sources 4 --time 10 --stage parse:8:4 --stage enrich:8:4:policy=ucb
+ *                 --stage aggregate:4:2 --set batch=16
+ */
+public class Pipeline implements CSProcess {
+
+    private final int sources;
+    private final String[] names;
+    private final TestConfig common;
+    private final TestConfig[] configs;
+    private final RunStatistics[] stats;
+    private final RunResult[] results;
+    private long elapsedMs;
+
+    private Pipeline(int sources, String[] names, TestConfig common, TestConfig[] configs) {
+        this.sources = sources;
+        this.names = names;
+        this.common = common;
+        this.configs = configs;
+        this.stats = new RunStatistics[configs.length];
+        this.results = new RunResult[configs.length];
+    }
+
+    public static Builder builder(int sources, int durationSeconds) {
+        return new Builder(sources, durationSeconds);
+    }
+
+    /** Konfiguracja potoku: źródła, kolejne etapy i opcje. */
+    public static final class Builder {
+        private final int sources;
+        private final int durationSeconds;
+        private final List<String> names = new ArrayList<>();
+        private final List<int[]> sizes = new ArrayList<>();
+        private final List<String[]> stageOptions = new ArrayList<>();
+        private final List<String> commonOptions = new ArrayList<>();
+
+        private Builder(int sources, int durationSeconds) {
+            if (sources < 1 || durationSeconds < 1) {
+                throw new IllegalArgumentException("Liczba źródeł i czas muszą być >= 1: "
+                    + sources + ", " + durationSeconds);
+            }
+            this.sources = sources;
+            this.durationSeconds = durationSeconds;
+        }
+
+        /**
+         * Kolejny etap: buffers buforów i workers procesów, które pobierają z
+         * nich elementy i przekazują następnemu etapowi (w ostatnim - kończą).
+         * options - opcje "klucz=wartość" tylko dla tego etapu.
+         */
+        public Builder stage(String name, int buffers, int workers, String... options) {
+            if (buffers < 1 || workers < 1) {
+                throw new IllegalArgumentException("Etap " + name + ": liczba buforów i procesów musi być >= 1");
+            }
+            names.add(name);
+            sizes.add(new int[]{ buffers, workers });
+            stageOptions.add(options);
+            return this;
+        }
+
+        /** Opcje "klucz=wartość" wspólne dla wszystkich etapów. */
+        public Builder options(String... options) {
+            commonOptions.addAll(Arrays.asList(options));
+            return this;
+        }
+
+        public Pipeline build() {
+            if (names.isEmpty()) {
+                throw new IllegalArgumentException("Potok musi mieć co najmniej jeden etap");
+            }
+            TestConfig common = new TestConfig(sources, sizes.get(0)[0], sizes.get(0)[1], durationSeconds);
+            for (String option : commonOptions) {
+                common.applyOption(option);
+            }
+
+            TestConfig[] configs = new TestConfig[names.size()];
+            int producers = sources;
+            for (int i = 0; i < configs.length; i++) {
+                TestConfig cfg = new TestConfig(producers, sizes.get(i)[0], sizes.get(i)[1], durationSeconds);
+                for (String option : commonOptions) {
+                    cfg.applyOption(option);
+                }
+                for (String option : stageOptions.get(i)) {
+                    cfg.applyOption(option);
+                }
+                check(names.get(i), cfg, i == configs.length - 1);
+                if (cfg.backend == BufferBackend.MAPPED) {
+                    // Każdy etap ma własne segmenty buforów
+                    cfg.store = Paths.get(cfg.store, names.get(i)).toString();
+                }
+                configs[i] = cfg;
+                producers = cfg.numConsumers;
+            }
+            return new Pipeline(sources, names.toArray(new String[0]), common, configs);
+        }
+
+        private static void check(String name, TestConfig cfg, boolean last) {
+            try {
+                cfg.validate();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Etap " + name + ": " + e.getMessage());
+            }
+            if (cfg.payloadSize > 0) {
+                throw new IllegalArgumentException("Etap " + name + ": potok nie obsługuje payload");
+            }
+            if (cfg.orderWindow > 0 && !last) {
+                throw new IllegalArgumentException("Etap " + name + ": order tylko w ostatnim etapie");
+            }
+            if (cfg.metricsPort >= 0 || cfg.eventLog != null) {
+                throw new IllegalArgumentException("Etap " + name + ": potok nie obsługuje metrics i log");
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        int n = configs.length;
+        int processes = sources;
+        TablicaDispatcher[] systems = new TablicaDispatcher[n];
+        for (int i = 0; i < n; i++) {
+            stats[i] = new RunStatistics(configs[i].numProducers, configs[i].numBuffers,
+                                         configs[i].numConsumers);
+            if (configs[i].latencyHistograms) {
+                stats[i].enableLatencyHistograms();
+            }
+            systems[i] = new TablicaDispatcher(configs[i].numProducers, configs[i].numBuffers,
+                configs[i].numConsumers, configs[i].durationSeconds, false, stats[i], new AtomicBoolean(false));
+            configs[i].applyTo(systems[i]);
+            processes += configs[i].numConsumers;
+        }
+
+        long startTime = System.nanoTime();
+        PhaseController phases = new PhaseController(stats, processes, common.warmupMillis,
+            common.durationSeconds * 1000L, common.cooldownMillis);
+        phases.start();
+
+        // Od końca - etap musi istnieć, zanim poprzedni podłączy do niego swoje procesy
+        TablicaDispatcher.Stage[] stages = new TablicaDispatcher.Stage[n];
+        for (int i = n - 1; i >= 0; i--) {
+            stages[i] = systems[i].assemble(phases, i > 0, (i + 1 < n) ? stages[i + 1] : null);
+        }
+
+        List<CSProcess> workers = new ArrayList<>();
+        List<CSProcess> dispatchers = new ArrayList<>();
+        for (TablicaDispatcher.Stage stage : stages) {
+            workers.addAll(Arrays.asList(stage.processes));
+            dispatchers.addAll(Arrays.asList(stage.dispatchers));
+        }
+        long gcCountStart = AllocationProbe.gcCount();
+        long gcMillisStart = AllocationProbe.gcMillis();
+
+        common.executionMode.run(workers.toArray(new CSProcess[0]),
+            dispatchers.toArray(new CSProcess[0]));
+
+        long gcCount = AllocationProbe.gcCount() - gcCountStart;
+        long gcMillis = AllocationProbe.gcMillis() - gcMillisStart;
+        for (int i = 0; i < n; i++) {
+            stats[i].recordGc(gcCount, gcMillis);
+            stages[i].finish();
+        }
+        elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+        for (int i = 0; i < n; i++) {
+            results[i] = new RunResult(configs[i], elapsedMs, stats[i]);
+        }
+    }
+
+    /** Wynik etapu po run() (null wcześniej). */
+    RunResult result(int stage) {
+        return results[stage];
+    }
+
+    /**
+     * Raport etapów: przepustowość w oknie pomiaru, równomierność buforów,
+     * nieudane wstawienia do pełnych buforów etapu i stracony na nie czas
+     * (przeciwciśnienie) oraz p99 wstawiania/pobierania, gdy latency=on.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Potok: %d źródeł, %d etapy, czas %d ms, okno pomiaru %d ms%n",
+            sources, configs.length, elapsedMs, (results[0] != null) ? results[0].measuredMs : 0));
+        sb.append(String.format(Locale.ROOT, "  %-12s %4s %4s %4s %10s %6s %9s %10s %11s %11s %9s%n",
+            "etap", "P", "B", "K", "elem/s", "CV%", "timeouty", "stracone_ms", "p99_wst_us", "p99_pob_us", "porzucone"));
+        for (int i = 0; i < configs.length; i++) {
+            RunResult result = results[i];
+            if (result == null) continue;
+            LatencyHistogram put = result.putLatency();
+            LatencyHistogram take = result.takeLatency();
+            sb.append(String.format(Locale.ROOT, "  %-12s %4d %4d %4d %10.0f %6.1f %9d %10d %11s %11s %9d%n",
+                names[i], configs[i].numProducers, configs[i].numBuffers, configs[i].numConsumers,
+                result.throughput(), result.bufferCoefficient(), result.stats.putTimeouts, result.lostMillis(),
+                (put != null) ? Long.toString(put.percentile(99) / 1000) : "-",
+                (take != null) ? Long.toString(take.percentile(99) / 1000) : "-",
+                result.dropped()));
+        }
+        RunResult last = results[configs.length - 1];
+        if (last != null) {
+            sb.append(String.format(Locale.ROOT, "  Opcje: %s%n", common.describeOptions()));
+            sb.append(String.format(Locale.ROOT, "  Na wyjściu potoku: %.0f elem/s, GC %d (%d ms)%n",
+                last.throughput(), last.totals.gcCount, last.totals.gcMillis));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        Builder builder;
+        try {
+            int sources = 0;
+            int time = 0;
+            List<String[]> stageSpecs = new ArrayList<>();
+            List<String> options = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--sources": sources = Integer.parseInt(value(args, ++i)); break;
+                    case "--time":    time = Integer.parseInt(value(args, ++i)); break;
+                    case "--stage":   stageSpecs.add(value(args, ++i).split(":", 4)); break;
+                    case "--set":     options.add(value(args, ++i)); break;
+                    default:
+                        throw new IllegalArgumentException("nieznany argument: " + args[i]);
+                }
+            }
+            builder = builder(sources, time);
+            for (String[] spec : stageSpecs) {
+                if (spec.length < 3) {
+                    throw new IllegalArgumentException("etap w postaci nazwa:B:K[:opcja,opcja]: "
+                        + String.join(":", spec));
+                }
+                String[] stageOptions = (spec.length == 4) ? spec[3].split(",") : new String[0];
+                builder.stage(spec[0], Integer.parseInt(spec[1]), Integer.parseInt(spec[2]), stageOptions);
+            }
+            builder.options(options.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Błąd: " + e.getMessage());
+            usage();
+            System.exit(2);
+            return;
+        }
+
+        Pipeline pipeline;
+        try {
+            pipeline = builder.build();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Błąd: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        pipeline.run();
+        System.out.print(pipeline.report());
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("brak wartości dla " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static void usage() {
+        System.err.println("Użycie: java Pipeline --sources N --time S --stage nazwa:B:K[:klucz=wartość,...]...");
+        System.err.println("        [--set klucz=wartość]...   (opcja dla wszystkich etapów)");
+    }
+}
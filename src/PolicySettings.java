@@ -0,0 +1,74 @@
+/**
+ * Parametry polityk wyboru bufora. Wartości domyślne odpowiadają wzorom,
+ * które wcześniej były wpisane na sztywno w TablicaDispatcher.
+ */
+public final class PolicySettings {
+
+    /** Udział nowej próbki w średniej wykładniczej (0.7 stara + 0.3 nowa). */
+    double ewmaAlpha = 0.3;
+
+    /** Udział odpowiedzi dispatchera przy łączeniu z lokalnymi wagami. */
+    double syncBlend = 0.5;
+
+    /** Mnożnik wagi bufora po nieudanym wstawieniu (producent). */
+    double putPenalty = 0.9;
+
+    /** Mnożnik wagi bufora po pustym pobraniu (konsument). */
+    double takePenalty = 0.95;
+
+    /** Współczynnik eksploracji c w UCB: średnia + c * sqrt(ln N / n). */
+    double ucbExploration = 0.2;
+
+    /** Niezależna kopia - warianty konfiguracji nie mogą dzielić ustawień. */
+    PolicySettings copy() {
+        PolicySettings copy = new PolicySettings();
+        copy.ewmaAlpha = ewmaAlpha;
+        copy.syncBlend = syncBlend;
+        copy.putPenalty = putPenalty;
+        copy.takePenalty = takePenalty;
+        copy.ucbExploration = ucbExploration;
+        return copy;
+    }
+
+    void setEwmaAlpha(double ewmaAlpha) {
+        this.ewmaAlpha = checkFraction("ewma", ewmaAlpha);
+    }
+
+    void setSyncBlend(double syncBlend) {
+        this.syncBlend = checkFraction("sync-blend", syncBlend);
+    }
+
+    void setPutPenalty(double putPenalty) {
+        this.putPenalty = checkFraction("put-penalty", putPenalty);
+    }
+
+    void setTakePenalty(double takePenalty) {
+        this.takePenalty = checkFraction("take-penalty", takePenalty);
+    }
+
+    void setUcbExploration(double ucbExploration) {
+        if (!(ucbExploration >= 0)) {
+            throw new IllegalArgumentException("ucb-c musi być >= 0: " + ucbExploration);
+        }
+        this.ucbExploration = ucbExploration;
+    }
+
+    /** Parametry różne od domyślnych, w formacie opcji (pusty, gdy brak). */
+    String describe() {
+        PolicySettings defaults = new PolicySettings();
+        StringBuilder sb = new StringBuilder();
+        if (ewmaAlpha != defaults.ewmaAlpha) sb.append(" ewma=").append(ewmaAlpha);
+        if (syncBlend != defaults.syncBlend) sb.append(" sync-blend=").append(syncBlend);
+        if (putPenalty != defaults.putPenalty) sb.append(" put-penalty=").append(putPenalty);
+        if (takePenalty != defaults.takePenalty) sb.append(" take-penalty=").append(takePenalty);
+        if (ucbExploration != defaults.ucbExploration) sb.append(" ucb-c=").append(ucbExploration);
+        return sb.toString();
+    }
+
+    private static double checkFraction(String name, double value) {
+        if (!(value > 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " musi być w (0, 1]: " + value);
+        }
+        return value;
+    }
+}
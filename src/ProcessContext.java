@@ -0,0 +1,83 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * To, co dzielą procesy producentów i konsumentów jednego etapu: bufory,
+ * statystyki, fazy, numeracja elementów i dodatki włączane opcjami
+ * (ładunek, okno kolejności, dziennik, lokalność, model obciążenia,
+ * podgląd). Składany w TablicaDispatcher.assemble() - pola bez final są
+ * ustawiane tylko tam, przed uruchomieniem wątków procesów.
+ */
+final class ProcessContext {
+
+    final ItemBuffer[] queues;
+    final int numBuffers;
+    final int batchSize;
+    final RunStatistics stats;
+    final PhaseController phases;
+    final PaddedLong itemSequence = new PaddedLong(0);
+    final AtomicInteger activeProducers;
+
+    PayloadArena arena;          // null = sam numer elementu
+    ReorderWindow window;        // null = bez przywracania kolejności
+    EventLog events;             // null = bez dziennika
+    LocalityGroups locality;     // null = jedna grupa, bez przypinania
+    boolean pinned;
+    LoadShift shift;             // null = bez zmiany obciążenia
+    Workload model;              // null = bez modelu obciążenia
+    LiveMetrics metrics;
+
+    private final SelectionPolicy selectionPolicy;
+    private final PolicySettings policySettings;
+    private final double remoteShare;
+
+    ProcessContext(ItemBuffer[] queues, int batchSize, RunStatistics stats, PhaseController phases,
+                   int numProducers, SelectionPolicy selectionPolicy, PolicySettings policySettings,
+                   double remoteShare) {
+        this.queues = queues;
+        this.numBuffers = queues.length;
+        this.batchSize = batchSize;
+        this.stats = stats;
+        this.phases = phases;
+        this.activeProducers = new AtomicInteger(numProducers);
+        this.selectionPolicy = selectionPolicy;
+        this.policySettings = policySettings;
+        this.remoteShare = remoteShare;
+    }
+
+    /**
+     * Początek procesu na jego własnym wątku: przypięcie do procesorów grupy
+     * i zgłoszenie startu sterownikowi faz.
+     * @return grupa lokalności procesu
+     */
+    int startProcess(int processId) {
+        int group = (locality != null) ? locality.groupOfProcess(processId) : 0;
+        if (pinned) locality.pinCurrentThread(group);
+        phases.processStarted();
+        return group;
+    }
+
+    /** Czy bufory są podzielone na więcej niż jedną grupę lokalności. */
+    boolean grouped() {
+        return locality != null && locality.groups() > 1;
+    }
+
+    /** Pisarz dziennika dla bieżącego wątku (null bez dziennika). */
+    EventLog.Writer logWriter() {
+        return (events != null) ? events.writer() : null;
+    }
+
+    /** Polityka procesu - przy grupach lokalności w nakładce LocalityPolicy. */
+    BufferSelectionPolicy createPolicy(boolean producer, int group, SplittableRandom rand) {
+        BufferSelectionPolicy policy = selectionPolicy.create(queues, producer, policySettings, rand);
+        if (grouped()) {
+            policy = new LocalityPolicy(policy, locality, group, numBuffers, remoteShare, rand);
+        }
+        return policy;
+    }
+
+    /** Element do dziennika - przy ładunku numer odczytany ze slotu i sam slot. */
+    long logItem(int value) {
+        return (arena != null) ? EventLog.item(arena.itemAt(value), value) : EventLog.item(value, -1);
+    }
+}
@@ -0,0 +1,249 @@
+import org.jcsp.lang.*;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proces producenta. Polityka wybiera bufor albo synchronizację z
+ * dispatcherem; do bufora trafia paczka kolejnych numerów elementów z
+ * timeoutem, a przy przelewaniu (spill) najpierw bez czekania, z resztą
+ * paczki do kolejnych buforów w kolejności oceny polityki. Kończy się z
+ * końcem przebiegu i zgłasza to - także po wyjątku - dispatcherowi i
+ * konsumentom, którzy czekają na wszystkich producentów.
+ */
+final class ProducerProcess implements CSProcess {
+
+    private static final long SORT_INDEX_MASK = (1L << 24) - 1;
+
+    private final ProcessContext ctx;
+    private final int pid;
+    private final DispatcherLink dispatcher;
+    private final boolean spill;
+    private final Workload.Worker maker;
+    private final int numBuffers;
+    private final int batchSize;
+    private final long[] waitTimes;
+    private final int[] batch;
+    private final long[] order;
+
+    // Stan procesu - ustawiany na jego wątku w run()
+    private BufferSelectionPolicy policy;
+    private EventLog.Writer log;
+    private int group;
+    private boolean grouped;
+    private int pending = 0;             // zarezerwowane, jeszcze niewstawione numery
+
+    /**
+     * @param spill przelewanie reszty paczki do innych buforów zamiast czekania
+     * @param maker model obciążenia producenta (null = bez czasu wytworzenia)
+     */
+    ProducerProcess(ProcessContext ctx, int pid, DispatcherLink dispatcher, boolean spill,
+                    Workload.Worker maker) {
+        this.ctx = ctx;
+        this.pid = pid;
+        this.dispatcher = dispatcher;
+        this.spill = spill;
+        this.maker = maker;
+        this.numBuffers = ctx.numBuffers;
+        this.batchSize = ctx.batchSize;
+        this.waitTimes = new long[numBuffers + 1];
+        this.batch = new int[batchSize];
+        this.order = spill ? new long[numBuffers] : null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            group = ctx.startProcess(pid);
+            log = ctx.logWriter();
+            SplittableRandom rand = new SplittableRandom(pid * 1000 + System.nanoTime());
+            policy = ctx.createPolicy(true, group, rand);
+            grouped = ctx.grouped();
+
+            while (ctx.phases.running()) {
+                int target = policy.select();
+
+                if (target == numBuffers) {
+                    sync();
+                } else if (!put(target)) {
+                    break;
+                }
+            }
+
+            // Zakończenie - numery zarezerwowane, ale niewstawione, są porzucone
+            if (pending > 0) {
+                ctx.stats.addUnplaced(pid, pending);
+                if (ctx.arena != null) {
+                    for (int i = 0; i < pending; i++) {
+                        ctx.arena.release(batch[i]);
+                    }
+                }
+            }
+
+            if (log != null) log.log(EventLog.PRODUCER_FINISHED, pid, 0, 0);
+        } finally {
+            // Także po wyjątku - konsumenci czekają na wszystkich producentów
+            ctx.activeProducers.decrementAndGet();
+            dispatcher.terminate();
+        }
+    }
+
+    private void sync() {
+        long[] aggregated = dispatcher.sync(waitTimes);
+        if (aggregated != null) {
+            policy.onSync(aggregated);
+            DispatcherEvents.weightUpdate(true, pid, policy, numBuffers);
+            ctx.metrics.publishScores(true, pid, policy);
+            if (log != null) log.log(EventLog.PRODUCER_SYNCED, pid, 0, 0);
+        } else if (!dispatcher.isAsync()) {
+            // Timeout - pomiń synchronizację
+            if (log != null) log.log(EventLog.PRODUCER_SYNC_TIMEOUT, pid, 0, 0);
+        }
+    }
+
+    /**
+     * Jedna próba wstawienia paczki z wyborem bufora target.
+     * @return false, gdy przebieg się skończył albo wątek przerwano
+     */
+    private boolean put(int target) {
+        // Paczka kolejnych numerów - niewstawione w poprzedniej
+        // próbie zostają na początku, więc numeracja nie ma dziur
+        if (pending < batchSize) refill();
+
+        long startTime = System.nanoTime();
+        // Nie czekaj dłużej niż do końca przebiegu
+        long maxWait = ctx.phases.waitMillis(50);
+        if (maxWait == 0) return false;
+
+        RunStatistics stats = ctx.stats;
+        try {
+            // Przy przelewaniu pierwsza próba nie czeka
+            int inTarget = ctx.queues[target].offerBatch(batch, 0, pending,
+                spill ? 0 : maxWait, TimeUnit.MILLISECONDS);
+            int placed = inTarget;
+
+            if (spill && placed < pending) {
+                placed = spillRest(target, placed);
+
+                if (placed == 0) {
+                    // Wszystkie bufory pełne - dopiero teraz czekaj
+                    inTarget = placed = ctx.queues[target].offerBatch(batch, 0, pending,
+                        maxWait, TimeUnit.MILLISECONDS);
+                } else if (inTarget == 0) {
+                    // Wybrany bufor był pełny - próba bez czekania
+                    policy.onMiss(target, 0);
+                }
+            }
+
+            long waitNanos = System.nanoTime() - startTime;
+            stats.recordPut(pid, target, waitNanos);
+
+            if (placed > 0) {
+                stats.addProduced(pid, placed);
+            }
+
+            if (inTarget > 0) {
+                // Czas uśredniony na element - waga aktualizowana raz na paczkę
+                long elapsed = waitNanos / placed;
+                waitTimes[target] = elapsed;
+                policy.onSuccess(target, elapsed);
+                if (grouped && !ctx.locality.isLocal(group, target)) {
+                    stats.addRemotePut(pid, inTarget);
+                }
+
+                if (log != null) {
+                    for (int i = 0; i < inTarget; i++) {
+                        log.log(EventLog.PUT, pid, target, ctx.logItem(batch[i]));
+                    }
+                }
+            } else if (placed == 0) {
+                // Timeout - zwiększ szansę innych buforów
+                stats.addPutTimeout(pid, waitNanos);
+                DispatcherEvents.bufferTimeout(true, pid, target, waitNanos);
+                policy.onMiss(target, waitNanos);
+            }
+
+            pending -= placed;
+            if (pending > 0 && placed > 0) {
+                System.arraycopy(batch, placed, batch, 0, pending);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /** Dopełnia paczkę nowymi numerami (przy ładunku - slotami z rekordami). */
+    private void refill() {
+        // Wytworzenie nowych elementów (model obciążenia)
+        if (maker != null) maker.serve(batchSize - pending);
+        long first = ctx.itemSequence.getAndAdd(batchSize - pending) + 1;
+        PayloadArena arena = ctx.arena;
+        for (int i = pending; i < batchSize; i++) {
+            int item = ItemBuffer.item(first + i - pending);
+            if (arena != null) {
+                // Rekord w slocie, przez bufor idzie tylko indeks
+                int slot = arena.acquire();
+                arena.write(slot, item);
+                item = slot;
+            }
+            batch[i] = item;
+        }
+        pending = batchSize;
+    }
+
+    /**
+     * Reszta paczki od placed do kolejnych buforów w kolejności oceny
+     * polityki, bez czekania.
+     * @return liczba wstawionych elementów paczki łącznie z wcześniejszymi
+     */
+    private int spillRest(int target, int placed) throws InterruptedException {
+        sortByScore(policy, ctx.locality, group, order);
+        for (int i = numBuffers - 1; i >= 0 && placed < pending; i--) {
+            int b = (int) (order[i] & SORT_INDEX_MASK);
+            if (b == target) continue;
+
+            long spillStart = System.nanoTime();
+            int put = ctx.queues[b].offerBatch(batch, placed, pending - placed,
+                0, TimeUnit.MILLISECONDS);
+            if (put > 0) {
+                long elapsed = (System.nanoTime() - spillStart) / put;
+                waitTimes[b] = elapsed;
+                policy.onSuccess(b, elapsed);
+                ctx.stats.addSpilled(pid, put);
+                if (grouped && !ctx.locality.isLocal(group, b)) {
+                    ctx.stats.addRemotePut(pid, put);
+                }
+
+                if (log != null) {
+                    for (int k = placed; k < placed + put; k++) {
+                        log.log(EventLog.SPILL, pid, b, ctx.logItem(batch[k]));
+                    }
+                }
+                placed += put;
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * Indeksy buforów posortowane rosnąco według oceny polityki, bez alokacji:
+     * klucz to bity oceny (float, ze znakiem przekształconym tak, żeby porządek
+     * bitów był porządkiem liczb) nad indeksem w młodszych 24 bitach
+     * (SORT_INDEX_MASK). Przy grupach lokalności najwyższy bit klucza oznacza
+     * bufor własnej grupy, więc lokalne są zawsze za obcymi.
+     * Najlepszy bufor jest na końcu.
+     */
+    private static void sortByScore(BufferSelectionPolicy policy, LocalityGroups locality,
+                                    int group, long[] order) {
+        boolean grouped = locality != null && locality.groups() > 1;
+        for (int i = 0; i < order.length; i++) {
+            int bits = Float.floatToIntBits((float) policy.score(i));
+            bits ^= (bits >> 31) & 0x7fffffff;
+            long key = ((bits ^ Integer.MIN_VALUE) & 0xFFFFFFFFL) << 24 | i;
+            if (grouped && locality.isLocal(group, i)) key |= 1L << 56;
+            order[i] = key;
+        }
+        Arrays.sort(order);
+    }
+}
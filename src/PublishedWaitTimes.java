@@ -0,0 +1,60 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Ostatnia zagregowana tablica czasów oczekiwania opublikowana przez shard
+ * dispatchera. Jeden pisarz (dispatcher), dowolnie wielu czytelników.
+ *
+ * Tablica jest jedna i nadpisywana w miejscu pod blokadą zapisu, a
+ * czytelnicy kopiują ją do własnej tablicy odczytem optymistycznym
+ * StampedLock - bez blokowania i bez alokacji po żadnej ze stron. Odczyt
+ * przerwany publikacją jest powtarzany, po kilku próbach pod blokadą odczytu.
+ */
+class PublishedWaitTimes {
+
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    private final StampedLock lock = new StampedLock();
+    private final long[] waitTimes;
+    private long version = 0;
+
+    PublishedWaitTimes(int length) {
+        this.waitTimes = new long[length];
+    }
+
+    /** Publikuje kopię tablicy. */
+    void publish(long[] source) {
+        long stamp = lock.writeLock();
+        try {
+            System.arraycopy(source, 0, waitTimes, 0, waitTimes.length);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Kopiuje tablicę do target, jeśli od lastVersion była nowa publikacja.
+     * @return bieżąca wersja (równa lastVersion, gdy target nie został zmieniony)
+     */
+    long readIfNewer(long lastVersion, long[] target) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) continue; // trwa publikacja
+            long current = version;
+            if (current != lastVersion) {
+                System.arraycopy(waitTimes, 0, target, 0, waitTimes.length);
+            }
+            if (lock.validate(stamp)) return current;
+        }
+
+        long stamp = lock.readLock();
+        try {
+            if (version != lastVersion) {
+                System.arraycopy(waitTimes, 0, target, 0, waitTimes.length);
+            }
+            return version;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
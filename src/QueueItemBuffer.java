@@ -0,0 +1,71 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bufor oparty na ArrayBlockingQueue - pierwotna implementacja systemu.
+ * Jeden ReentrantLock na bufor i boxing każdego elementu.
+ *
+ * ArrayBlockingQueue.size() bierze lock, więc głębokość jest śledzona
+ * osobnym licznikiem, który size() odczytuje bez blokady.
+ */
+class QueueItemBuffer implements ItemBuffer {
+
+    private final ArrayBlockingQueue<Integer> queue;
+    private final int capacity;
+    private final PaddedLong depth = new PaddedLong(0);
+
+    QueueItemBuffer(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!queue.offer(item, timeout, unit)) return false;
+        depth.getAndAdd(1);
+        return true;
+    }
+
+    @Override
+    public int poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Integer item = queue.poll(timeout, unit);
+        if (item == null) return EMPTY;
+        depth.getAndAdd(-1);
+        return item;
+    }
+
+    @Override
+    public int offerBatch(int[] items, int offset, int count, long timeout, TimeUnit unit) 
+            throws InterruptedException {
+        if (count <= 0 || !queue.offer(items[offset], timeout, unit)) return 0;
+        
+        int placed = 1;
+        while (placed < count && queue.offer(items[offset + placed])) {
+            placed++;
+        }
+        depth.getAndAdd(placed);
+        return placed;
+    }
+
+    @Override
+    public int drainTo(int[] dst, int offset, int max) {
+        int taken = 0;
+        Integer item;
+        while (taken < max && (item = queue.poll()) != null) {
+            dst[offset + taken++] = item;
+        }
+        if (taken > 0) depth.getAndAdd(-taken);
+        return taken;
+    }
+
+    @Override
+    public int size() {
+        // Wstawienie jest liczone po fakcie, więc chwilowo może być < 0
+        return (int) Math.max(0, Math.min(depth.get(), capacity));
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,211 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Okno przywracania kolejności elementów przed ich przetworzeniem.
+ *
+ * Konsumenci pobierają elementy z buforów w dowolnej kolejności i wkładają
+ * je do okna pod numerem sekwencyjnym. Elementy niosą tylko 31 młodszych
+ * bitów numeru (ItemBuffer.item), a sequence() odtwarza z nich pełny numer
+ * względem oczekiwanego - elementy w obiegu nie są od niego dalej niż 2^30.
+ * Elementy są przekazywane ściśle rosnąco, zaczynając od 1, do Delivery
+ * konsumenta, który akurat przejmie blokadę drenowania, więc naraz
+ * dostarcza najwyżej jeden wątek, a seria kończy się przed zwolnieniem
+ * blokady (endOfSeries).
+ *
+ * Okno ma stały rozmiar i nie alokuje. Element dalej niż rozmiar okna za
+ * oczekiwanym numerem nie zmieści się (FULL) - wołający czeka, a po
+ * przekroczeniu limitu wywołuje skipGap(). Brakujący element może nie
+ * przyjść nigdy (został w buforze albo w paczce producenta na końcu
+ * przebiegu), więc bez pomijania luk okno mogłoby zablokować wszystkich
+ * konsumentów. Element, który przyjdzie po pominięciu swojej luki, jest
+ * spóźniony (LATE) i wołający przetwarza go poza kolejnością - także
+ * wtedy, gdy skipGap() przeskoczył jego numer w trakcie offer().
+ */
+class ReorderWindow {
+
+    static final int PLACED = 0;
+    static final int LATE = 1;
+    static final int FULL = 2;
+
+    /** Odbiorca elementów w kolejności - wołany tylko pod blokadą drenowania. */
+    interface Delivery {
+
+        /** Kolejny element; buffer to bufor, z którego go pobrano. */
+        void deliver(int value, int buffer);
+
+        /** Koniec serii dostarczeń - przed zwolnieniem blokady drenowania. */
+        void endOfSeries();
+    }
+
+    private static final long ITEM_RANGE = 1L << 31;
+    private static final long HALF_RANGE = ITEM_RANGE >> 1;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences; // numer elementu w slocie, 0 = pusty, < 0 = zajęty
+    private final int[] values;
+    private final int[] buffers;
+
+    // Stany drainLock; SKIPPING - skipGap() przesuwa next przez luki
+    private static final long FREE = 0;
+    private static final long DRAINING = 1;
+    private static final long SKIPPING = 2;
+
+    private final PaddedLong next;                          // oczekiwany numer
+    private final PaddedLong drainLock = new PaddedLong(FREE);
+
+    // Zapisywane tylko przez wątek trzymający drainLock
+    private long delivered = 0;
+    private long gaps = 0;
+
+    ReorderWindow(int capacity) {
+        this(capacity, 1);
+    }
+
+    /** Okno oczekujące najpierw numeru first (testy przejścia numerów przez 2^31). */
+    ReorderWindow(int capacity, long first) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Rozmiar okna musi być dodatni: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        this.capacity = size;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.values = new int[size];
+        this.buffers = new int[size];
+        this.next = new PaddedLong(first);
+    }
+
+    /** Pełny numer sekwencyjny elementu item - najbliższy oczekiwanemu z tymi 31 bitami. */
+    long sequence(int item) {
+        long expected = next.get();
+        long seq = (expected & -ITEM_RANGE) | item;
+        if (seq < expected - HALF_RANGE) {
+            seq += ITEM_RANGE;
+        } else if (seq >= expected + HALF_RANGE) {
+            seq -= ITEM_RANGE;
+        }
+        return seq;
+    }
+
+    /**
+     * Wkłada element o numerze seq pobrany z bufora buffer i dostarcza przez
+     * delivery to, co jest już w kolejności, jeśli blokada drenowania wolna.
+     * @return PLACED, LATE (numer już minął - przetwórz sam) albo FULL
+     */
+    int offer(long seq, int value, int buffer, Delivery delivery) {
+        long expected = next.get();
+        if (seq < expected) return LATE;
+        if (seq >= expected + capacity) return FULL;
+
+        int idx = (int) (seq & mask);
+        // Rezerwacja slotu (-seq nie pasuje do żadnego numeru). Slot może
+        // jeszcze trzymać numer o capacity mniejszy, który wycofuje jego
+        // właściciel (poniżej), albo o capacity większy, gdy seq już minął.
+        while (!sequences.compareAndSet(idx, 0, -seq)) {
+            if (seq < next.get()) return LATE;
+            Thread.onSpinWait();
+        }
+        values[idx] = value;
+        buffers[idx] = buffer;
+        sequences.set(idx, seq);
+
+        // skipGap() mógł nie zauważyć elementu i przesunąć next za seq - po
+        // zakończeniu przeskoku taki element nigdy nie zostałby dostarczony.
+        // Nieudane wycofanie znaczy, że dostarczył go drenujący wątek.
+        while (drainLock.get() == SKIPPING) {
+            Thread.onSpinWait();
+        }
+        if (seq < next.get() && sequences.compareAndSet(idx, seq, 0)) {
+            return LATE;
+        }
+        drain(delivery);
+        return PLACED;
+    }
+
+    /**
+     * Pomija brakujące numery aż do pierwszego obecnego w oknie i dostarcza
+     * to, co za nim. Nic nie robi, gdy okno drenuje właśnie inny wątek.
+     */
+    void skipGap(Delivery delivery) {
+        if (!drainLock.compareAndSet(FREE, SKIPPING)) return;
+
+        long n = next.get();
+        long limit = n + capacity;
+        while (n < limit && sequences.get((int) (n & mask)) != n) {
+            n++;
+        }
+        if (n < limit) {
+            gaps += n - next.get();
+            next.set(n);
+        }
+        drainLock.set(DRAINING);
+        drainLocked(delivery);
+        drainLock.set(FREE);
+        drain(delivery);
+    }
+
+    /**
+     * Dostarcza wszystko, co zostało w oknie, pomijając luki - na końcu
+     * przebiegu, gdy nikt już nie wkłada elementów.
+     */
+    void flush(Delivery delivery) {
+        while (!drainLock.compareAndSet(FREE, DRAINING)) {
+            Thread.onSpinWait();
+        }
+        long n = next.get();
+        long last = n - 1;
+        for (long s = n; s < n + capacity; s++) {
+            int idx = (int) (s & mask);
+            if (sequences.get(idx) == s) {
+                int value = values[idx];
+                int buffer = buffers[idx];
+                sequences.set(idx, 0);
+                delivery.deliver(value, buffer);
+                delivered++;
+                gaps += s - last - 1;
+                last = s;
+            }
+        }
+        next.set(last + 1);
+        delivery.endOfSeries();
+        drainLock.set(FREE);
+    }
+
+    /** Elementy dostarczone w kolejności (odczyt po zakończeniu procesów). */
+    long delivered() {
+        return delivered;
+    }
+
+    /** Numery pominięte jako luki (odczyt po zakończeniu procesów). */
+    long gaps() {
+        return gaps;
+    }
+
+    private void drain(Delivery delivery) {
+        while (drainLock.compareAndSet(FREE, DRAINING)) {
+            drainLocked(delivery);
+            drainLock.set(FREE);
+
+            // Element mógł dojść po ostatnim sprawdzeniu, a przed zwolnieniem blokady
+            long n = next.get();
+            if (sequences.get((int) (n & mask)) != n) return;
+        }
+    }
+
+    private void drainLocked(Delivery delivery) {
+        long n = next.get();
+        int idx;
+        while (sequences.get(idx = (int) (n & mask)) == n) {
+            int value = values[idx];
+            int buffer = buffers[idx];
+            sequences.set(idx, 0);
+            delivery.deliver(value, buffer);
+            delivered++;
+            next.set(++n);
+        }
+        delivery.endOfSeries();
+    }
+}
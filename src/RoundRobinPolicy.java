@@ -0,0 +1,43 @@
+import java.util.SplittableRandom;
+
+/**
+ * Kolejno po buforach i dispatcherze (pozycja numBuffers). Punkt startowy
+ * jest losowy, żeby procesy nie zaczynały od tego samego bufora. Punkt odniesienia dla pozostałych polityk.
+ */
+class RoundRobinPolicy implements BufferSelectionPolicy {
+
+    private final int numBuffers;
+    private int next;
+
+    RoundRobinPolicy(int numBuffers, SplittableRandom rand) {
+        this.numBuffers = numBuffers;
+        this.next = rand.nextInt(numBuffers + 1);
+    }
+
+    @Override
+    public int select() {
+        int selected = next;
+        next = (next == numBuffers) ? 0 : next + 1;
+        return selected;
+    }
+
+    @Override
+    public void onSuccess(int buffer, long nanosPerItem) {
+    }
+
+    @Override
+    public void onMiss(int buffer, long waitedNanos) {
+    }
+
+    @Override
+    public void onSync(long[] aggregatedWaitTimes) {
+    }
+
+    @Override
+    public double score(int buffer) {
+        // Najwyżej bufor, który byłby wybrany jako następny
+        int distance = buffer - next;
+        if (distance < 0) distance += numBuffers + 1;
+        return -distance;
+    }
+}
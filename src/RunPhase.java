@@ -0,0 +1,15 @@
+/**
+ * Faza przebiegu publikowana przez PhaseController.
+ * STARTING - procesy się uruchamiają, czas jeszcze nie biegnie,
+ * WARMUP   - rozgrzewka (JIT, wagi), wyniki nie są liczone,
+ * MEASURE  - okno pomiaru - tylko z niego pochodzą raportowane liczby,
+ * COOLDOWN - procesy pracują dalej, żeby koniec okna nie był końcem ruchu,
+ * STOPPED  - producenci kończą, konsumenci drenują bufory.
+ */
+enum RunPhase {
+    STARTING,
+    WARMUP,
+    MEASURE,
+    COOLDOWN,
+    STOPPED
+}
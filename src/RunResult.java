@@ -0,0 +1,147 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Wynik pojedynczego przebiegu: konfiguracja, zmierzony czas, migawka
+ * statystyk i szczytowe RSS. Wartości pochodne (przepustowość, rozkład
+ * na bufory) liczone są tutaj, żeby raport tekstowy, zbiorczy CSV
+ * i BenchmarkRunner korzystały z tych samych wzorów.
+ *
+ * stats to przyrost w oknie pomiaru (bez rozgrzewki, wygaszania i
+ * zamknięcia), totals - cały przebieg, potrzebny do bilansu elementów.
+ */
+class RunResult {
+
+    final TestConfig config;
+    final long elapsedMs;      // cały przebieg, z uruchomieniem i zamknięciem
+    final long measuredMs;     // okno pomiaru
+    final RunStatistics.Snapshot stats;
+    final RunStatistics.Snapshot totals;
+    final long peakRssKb;
+
+    RunResult(TestConfig config, long elapsedMs, RunStatistics stats) {
+        this.config = config;
+        this.elapsedMs = elapsedMs;
+        this.measuredMs = stats.measuredMillis();
+        this.stats = stats.measuredSnapshot();
+        this.totals = stats.snapshot();
+        this.peakRssKb = peakRssKb();
+    }
+
+    /** Skonsumowane elementy na sekundę okna pomiaru. */
+    double throughput() {
+        long window = (measuredMs > 0) ? measuredMs : elapsedMs;
+        return (window > 0) ? (stats.consumed / (window / 1000.0)) : 0;
+    }
+
+    /** Łączny czas producentów stracony na nieudanych wstawieniach. */
+    long lostMillis() {
+        return stats.putTimeoutNanos / 1_000_000;
+    }
+
+    /** Elementy porzucone przy zamknięciu: zostawione w buforach i niewstawione. */
+    long dropped() {
+        return totals.leftover + totals.unplaced;
+    }
+
+    /**
+     * Bajty zaalokowane na jedną synchronizację z dispatcherem przez wątki
+     * dispatcherów albo procesów (cały przebieg; -1 bez pomiaru alokacji).
+     * Procesy alokują też poza synchronizacją, więc to górne ograniczenie.
+     */
+    double allocatedPerSync(boolean dispatcher) {
+        long bytes = dispatcher ? totals.dispatcherAllocatedBytes : totals.workerAllocatedBytes;
+        if (bytes < 0) return -1;
+        return (totals.syncs > 0) ? (double) bytes / totals.syncs : 0;
+    }
+
+    /** Bajty ładunku na sekundę (0 bez ładunku). */
+    double bytesPerSecond() {
+        return throughput() * config.payloadSize;
+    }
+
+    long totalFromBuffers() {
+        long total = 0;
+        for (long count : stats.perBuffer) {
+            total += count;
+        }
+        return total;
+    }
+
+    double bufferMean() {
+        int numBuffers = stats.perBuffer.length;
+        return (numBuffers > 0) ? ((double) totalFromBuffers() / numBuffers) : 0;
+    }
+
+    /** Odchylenie standardowe (populacji) liczby elementów przekazanych przez bufor. */
+    double bufferStdDev() {
+        int numBuffers = stats.perBuffer.length;
+        if (numBuffers == 0) return 0;
+
+        double avg = bufferMean();
+        double variance = 0;
+        for (long count : stats.perBuffer) {
+            double diff = count - avg;
+            variance += diff * diff;
+        }
+        return Math.sqrt(variance / numBuffers);
+    }
+
+    /** Współczynnik zmienności obciążenia buforów w procentach. */
+    double bufferCoefficient() {
+        double avg = bufferMean();
+        return (avg > 0) ? (bufferStdDev() / avg * 100) : 0;
+    }
+
+    /** Scalony histogram wstawiania ze wszystkich buforów (null, gdy wyłączone). */
+    LatencyHistogram putLatency() {
+        return (stats.putLatency != null) ? merge(stats.putLatency) : null;
+    }
+
+    LatencyHistogram takeLatency() {
+        return (stats.takeLatency != null) ? merge(stats.takeLatency) : null;
+    }
+
+    static String csvHeader() {
+        return "P,B,K,t,czas_ms,okno_ms,wyprodukowano,skonsumowano,przepustowosc,bajty_na_sek,srednia,odchylenie,wsp_zmiennosci,"
+            + "timeouty_wstawiania,przelane,stracone_ms,luki,spoznione,porzucone,zamkniecie_ms," + TestConfig.csvOptionsHeader() + ",rss_kb";
+    }
+
+    String csvRow() {
+        return String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%d,%d,%.2f,%.0f,%.2f,%.2f,%.2f,%d,%d,%d,%d,%d,%d,%d,%s,%d",
+            config.numProducers, config.numBuffers, config.numConsumers, config.durationSeconds,
+            elapsedMs, measuredMs, stats.produced, stats.consumed, throughput(), bytesPerSecond(),
+            bufferMean(), bufferStdDev(), bufferCoefficient(), 
+            stats.putTimeouts, stats.spilled, lostMillis(), totals.orderGaps, totals.lateItems,
+            dropped(), totals.shutdownMillis,
+            config.csvOptions(), peakRssKb);
+    }
+
+    private static LatencyHistogram merge(LatencyHistogram[] histograms) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            merged.add(histogram);
+        }
+        return merged;
+    }
+
+    /**
+     * Szczytowe zużycie pamięci rezydentnej JVM (VmHWM z /proc, tylko Linux).
+     * @return wartość w KB albo -1, gdy niedostępna
+     */
+    static long peakRssKb() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Brak /proc - pomiń
+        }
+        return -1;
+    }
+}
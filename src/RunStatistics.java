@@ -0,0 +1,486 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statystyki przebiegu: wyprodukowane, skonsumowane i przekazane przez
+ * każdy bufor elementy. Każdy proces pisze tylko do własnych komórek,
+ * więc na gorącej ścieżce nie ma wspólnego licznika. Odczyt sumuje komórki.
+ */
+public class RunStatistics {
+
+    // Odstęp (w longach) przed i za wierszem konsumenta - osobne linie cache
+    private static final int ROW_PADDING = 8;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int numBuffers;
+    private final StripedCounter produced;
+    private final StripedCounter consumed;
+    private final StripedCounter stolen;
+    private final StripedCounter remotePuts;
+    private final StripedCounter remoteTakes;
+    private final StripedCounter spilled;
+    private final StripedCounter putTimeouts;
+    private final StripedCounter putTimeoutNanos;
+    private final StripedCounter corruptPayloads;
+    private final StripedCounter lateItems;
+    private final StripedCounter unplaced;
+    private final StripedCounter producerSyncs;
+    private final StripedCounter producerSyncNanos;
+    private final StripedCounter consumerSyncs;
+    private final StripedCounter consumerSyncNanos;
+    private final long[][] consumedPerBuffer; // [konsument][ROW_PADDING + bufor]
+    private long orderedDelivered;
+    private long orderGaps;
+    private long leftover;
+    private long shutdownMillis;
+    private long startupMillis;
+    private long gcCount;
+    private long gcMillis;
+    private long shiftConvergedMillis = -1;
+    private double shiftRatio;
+    private long recovered;
+    private long persisted;
+
+    // Bajty zaalokowane przez wątki procesów i dispatcherów (AllocationProbe),
+    // dodawane raz na proces przy jego zakończeniu
+    private final AtomicLong workerAllocated = new AtomicLong();
+    private final AtomicLong dispatcherAllocated = new AtomicLong();
+    private volatile boolean allocationUnknown = false;
+
+    // Migawki na granicach okna pomiaru (PhaseController)
+    private volatile Snapshot measureStart;
+    private volatile Snapshot measureEnd;
+    private long measureStartNanos;
+    private long measureEndNanos;
+
+    // Histogramy opóźnień - osobne dla każdego procesu i okna, null gdy
+    // wyłączone. Proces pisze do zestawu latencyWindow (jedyny pisarz
+    // każdego histogramu); scalane są dopiero po zakończeniu procesów.
+    private static final int OUTSIDE = 0;
+    private static final int MEASURED = 1;
+    private final int numProducers;
+    private final int numConsumers;
+    private volatile int latencyWindow = OUTSIDE;
+    private LatencyHistogram[][][] putLatency;   // [okno][producent][bufor]
+    private LatencyHistogram[][][] takeLatency;  // [okno][konsument][bufor]
+    private LatencyHistogram[][] producerSyncLatency;  // [okno][producent]
+    private LatencyHistogram[][] consumerSyncLatency;  // [okno][konsument]
+
+    public RunStatistics(int numProducers, int numBuffers, int numConsumers) {
+        this.numProducers = numProducers;
+        this.numConsumers = numConsumers;
+        this.numBuffers = numBuffers;
+        this.produced = new StripedCounter(numProducers);
+        this.consumed = new StripedCounter(numConsumers);
+        this.stolen = new StripedCounter(numConsumers);
+        this.remotePuts = new StripedCounter(numProducers);
+        this.remoteTakes = new StripedCounter(numConsumers);
+        this.spilled = new StripedCounter(numProducers);
+        this.putTimeouts = new StripedCounter(numProducers);
+        this.putTimeoutNanos = new StripedCounter(numProducers);
+        this.corruptPayloads = new StripedCounter(numConsumers);
+        this.lateItems = new StripedCounter(numConsumers);
+        this.unplaced = new StripedCounter(numProducers);
+        this.producerSyncs = new StripedCounter(numProducers);
+        this.producerSyncNanos = new StripedCounter(numProducers);
+        this.consumerSyncs = new StripedCounter(numConsumers);
+        this.consumerSyncNanos = new StripedCounter(numConsumers);
+        this.consumedPerBuffer = new long[Math.max(numConsumers, 1)][numBuffers + 2 * ROW_PADDING];
+    }
+
+    /**
+     * Włącza histogramy opóźnień (2 * (P*B + K*B + P + K) histogramów po
+     * ~5 KB - okno pomiaru i reszta przebiegu osobno).
+     * Musi być wywołane przed startem procesów.
+     */
+    public void enableLatencyHistograms() {
+        putLatency = new LatencyHistogram[][][]{
+            newHistograms(numProducers, numBuffers), newHistograms(numProducers, numBuffers) };
+        takeLatency = new LatencyHistogram[][][]{
+            newHistograms(numConsumers, numBuffers), newHistograms(numConsumers, numBuffers) };
+        producerSyncLatency = newHistograms(2, numProducers);
+        consumerSyncLatency = newHistograms(2, numConsumers);
+    }
+
+    public boolean latencyEnabled() {
+        return putLatency != null;
+    }
+
+    /**
+     * Czas synchronizacji procesu z dispatcherem (łącznie z timeoutami) -
+     * liczniki zawsze, histogram gdy włączony.
+     */
+    void recordSync(boolean producer, int processId, long nanos) {
+        if (producer) {
+            producerSyncs.add(processId, 1);
+            producerSyncNanos.add(processId, nanos);
+            if (producerSyncLatency != null) producerSyncLatency[latencyWindow][processId].record(nanos);
+        } else {
+            consumerSyncs.add(processId, 1);
+            consumerSyncNanos.add(processId, nanos);
+            if (consumerSyncLatency != null) consumerSyncLatency[latencyWindow][processId].record(nanos);
+        }
+    }
+
+    /** Liczba synchronizacji i ich łączny czas: {producenci, ns, konsumenci, ns}. */
+    long[] syncTotals() {
+        return new long[]{ producerSyncs.sum(), producerSyncNanos.sum(), 
+                           consumerSyncs.sum(), consumerSyncNanos.sum() };
+    }
+
+    long putTimeouts() {
+        return putTimeouts.sum();
+    }
+
+    long spilled() {
+        return spilled.sum();
+    }
+
+    long unplaced() {
+        return unplaced.sum();
+    }
+
+    void recordPut(int producerId, int buffer, long nanos) {
+        if (putLatency != null) putLatency[latencyWindow][producerId][buffer].record(nanos);
+    }
+
+    void recordTake(int consumerId, int buffer, long nanos) {
+        if (takeLatency != null) takeLatency[latencyWindow][consumerId][buffer].record(nanos);
+    }
+
+    void addProduced(int producerId, long count) {
+        produced.add(producerId, count);
+    }
+
+    void addConsumed(int consumerId, int buffer, long count) {
+        consumed.add(consumerId, count);
+        LONGS.getAndAdd(consumedPerBuffer[consumerId], ROW_PADDING + buffer, count);
+    }
+
+    /** Elementy pobrane z innego bufora niż wylosowany (strategia STEALING). */
+    void addStolen(int consumerId, long count) {
+        stolen.add(consumerId, count);
+    }
+
+    /** Elementy wstawione do bufora spoza grupy lokalności producenta. */
+    void addRemotePut(int producerId, long count) {
+        remotePuts.add(producerId, count);
+    }
+
+    /** Elementy pobrane z bufora spoza grupy lokalności konsumenta. */
+    void addRemoteTake(int consumerId, long count) {
+        remoteTakes.add(consumerId, count);
+    }
+
+    /** Elementy wstawione do innego bufora niż wylosowany (przelewanie). */
+    void addSpilled(int producerId, long count) {
+        spilled.add(producerId, count);
+    }
+
+    /** Nieudane wstawienie po pełnym czasie oczekiwania - nanos to stracony czas. */
+    void addPutTimeout(int producerId, long nanos) {
+        putTimeouts.add(producerId, 1);
+        putTimeoutNanos.add(producerId, nanos);
+    }
+
+    /** Ładunek, którego zawartość nie zgadzała się z numerem elementu. */
+    void addCorruptPayload(int consumerId) {
+        corruptPayloads.add(consumerId, 1);
+    }
+
+    /** Element, którego luka została już pominięta w oknie kolejności. */
+    void addLate(int consumerId) {
+        lateItems.add(consumerId, 1);
+    }
+
+    /**
+     * Wynik okna kolejności - wywoływane po zakończeniu procesów,
+     * więc zwykłe pola wystarczą.
+     */
+    void recordOrdering(long delivered, long gaps) {
+        this.orderedDelivered = delivered;
+        this.orderGaps = gaps;
+    }
+
+    /** Numery zarezerwowane przez producenta, ale niewstawione przed końcem przebiegu. */
+    void addUnplaced(int producerId, long count) {
+        unplaced.add(producerId, count);
+    }
+
+    /**
+     * Elementy, które zostały w buforach po drenowaniu, i czas od terminu
+     * przebiegu do zakończenia wszystkich procesów - po zakończeniu procesów.
+     */
+    void recordLeftover(long leftover) {
+        this.leftover = leftover;
+    }
+
+    void recordShutdown(long shutdownMillis) {
+        this.shutdownMillis = shutdownMillis;
+    }
+
+    /** Odśmiecania (liczba i łączny czas) w trakcie przebiegu. */
+    void recordGc(long gcCount, long gcMillis) {
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    /** Alokacja wątku jednego procesu; bytes < 0 - pomiar niedostępny. */
+    void addAllocated(boolean dispatcher, long bytes) {
+        if (bytes < 0) {
+            allocationUnknown = true;
+        } else {
+            (dispatcher ? dispatcherAllocated : workerAllocated).addAndGet(bytes);
+        }
+    }
+
+    /** Zbieżność tablicy wag po zmianie obciążenia (LoadShift). */
+    void recordLoadShift(long convergedMillis, double ratio) {
+        this.shiftConvergedMillis = convergedMillis;
+        this.shiftRatio = ratio;
+    }
+
+    /**
+     * Trwałe bufory: elementy zastane w segmentach przy starcie i zostawione
+     * w nich po zakończeniu (nie są porzucone - dostanie je następny przebieg).
+     */
+    void recordStore(long recovered, long persisted) {
+        this.recovered = recovered;
+        this.persisted = persisted;
+    }
+
+    /** Czas od utworzenia sterownika faz do startu pomiaru czasu. */
+    void recordStartup(long startupMillis) {
+        this.startupMillis = startupMillis;
+    }
+
+    /**
+     * Okno biegnie od końca migawki - od tej chwili odlicza je PhaseController.
+     * Migawki na granicach okna obejmują tylko liczniki; histogramy procesy
+     * od teraz piszą do zestawu okna.
+     */
+    void markMeasureStart() {
+        measureStart = counters();
+        latencyWindow = MEASURED;
+        measureStartNanos = System.nanoTime();
+    }
+
+    void markMeasureEnd() {
+        measureEndNanos = System.nanoTime();
+        latencyWindow = OUTSIDE;
+        measureEnd = counters();
+    }
+
+    /** Długość okna pomiaru (0, gdy się nie odbyło). */
+    public long measuredMillis() {
+        return (measureEnd != null) ? (measureEndNanos - measureStartNanos) / 1_000_000 : 0;
+    }
+
+    /**
+     * Przyrost statystyk w oknie pomiaru. Bez okna (przebieg przerwany
+     * przed jego końcem) - całość. Wywoływane po zakończeniu procesów.
+     */
+    public Snapshot measuredSnapshot() {
+        if (measureEnd == null) return snapshot();
+        Snapshot window = measureEnd.minus(measureStart);
+        if (latencyEnabled()) {
+            window.putLatency = mergePerBuffer(putLatency[MEASURED]);
+            window.takeLatency = mergePerBuffer(takeLatency[MEASURED]);
+            window.producerSyncLatency = merge(producerSyncLatency[MEASURED]);
+            window.consumerSyncLatency = merge(consumerSyncLatency[MEASURED]);
+        }
+        return window;
+    }
+
+    public long produced() {
+        return produced.sum();
+    }
+
+    public long consumed() {
+        return consumed.sum();
+    }
+
+    public long stolen() {
+        return stolen.sum();
+    }
+
+    public long consumedFromBuffer(int buffer) {
+        long sum = 0;
+        for (long[] row : consumedPerBuffer) {
+            sum += (long) LONGS.getOpaque(row, ROW_PADDING + buffer);
+        }
+        return sum;
+    }
+
+    /**
+     * Cały przebieg. Histogramy są scalane bez synchronizacji z procesami,
+     * więc tylko po ich zakończeniu są spójne.
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = counters();
+        if (latencyEnabled()) {
+            snapshot.putLatency = mergePerBuffer(putLatency[OUTSIDE], putLatency[MEASURED]);
+            snapshot.takeLatency = mergePerBuffer(takeLatency[OUTSIDE], takeLatency[MEASURED]);
+            snapshot.producerSyncLatency = merge(producerSyncLatency[OUTSIDE], producerSyncLatency[MEASURED]);
+            snapshot.consumerSyncLatency = merge(consumerSyncLatency[OUTSIDE], consumerSyncLatency[MEASURED]);
+        }
+        return snapshot;
+    }
+
+    /** Liczniki bez histogramów - bezpieczne w trakcie przebiegu. */
+    private Snapshot counters() {
+        long[] perBuffer = new long[numBuffers];
+        for (int i = 0; i < numBuffers; i++) {
+            perBuffer[i] = consumedFromBuffer(i);
+        }
+        Snapshot snapshot = new Snapshot(produced(), consumed(), perBuffer);
+        snapshot.stolen = stolen();
+        snapshot.remotePuts = remotePuts.sum();
+        snapshot.remoteTakes = remoteTakes.sum();
+        snapshot.spilled = spilled.sum();
+        snapshot.putTimeouts = putTimeouts.sum();
+        snapshot.putTimeoutNanos = putTimeoutNanos.sum();
+        snapshot.corruptPayloads = corruptPayloads.sum();
+        snapshot.orderedDelivered = orderedDelivered;
+        snapshot.orderGaps = orderGaps;
+        snapshot.lateItems = lateItems.sum();
+        snapshot.unplaced = unplaced.sum();
+        snapshot.leftover = leftover;
+        snapshot.shutdownMillis = shutdownMillis;
+        snapshot.startupMillis = startupMillis;
+        snapshot.syncs = producerSyncs.sum() + consumerSyncs.sum();
+        snapshot.gcCount = gcCount;
+        snapshot.gcMillis = gcMillis;
+        snapshot.shiftConvergedMillis = shiftConvergedMillis;
+        snapshot.shiftRatio = shiftRatio;
+        snapshot.recovered = recovered;
+        snapshot.persisted = persisted;
+        snapshot.workerAllocatedBytes = allocationUnknown ? -1 : workerAllocated.get();
+        snapshot.dispatcherAllocatedBytes = allocationUnknown ? -1 : dispatcherAllocated.get();
+        return snapshot;
+    }
+
+    private static LatencyHistogram[][] newHistograms(int rows, int columns) {
+        LatencyHistogram[][] histograms = new LatencyHistogram[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                histograms[r][c] = new LatencyHistogram();
+            }
+        }
+        return histograms;
+    }
+
+    private LatencyHistogram[] mergePerBuffer(LatencyHistogram[][]... perProcess) {
+        LatencyHistogram[] merged = new LatencyHistogram[numBuffers];
+        for (int b = 0; b < numBuffers; b++) {
+            merged[b] = new LatencyHistogram();
+            for (LatencyHistogram[][] window : perProcess) {
+                for (LatencyHistogram[] row : window) {
+                    merged[b].add(row[b]);
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static LatencyHistogram merge(LatencyHistogram[]... windows) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram[] histograms : windows) {
+            for (LatencyHistogram histogram : histograms) {
+                merged.add(histogram);
+            }
+        }
+        return merged;
+    }
+
+    public static final class Snapshot {
+        public final long produced;
+        public final long consumed;
+        public final long[] perBuffer;
+
+        // Elementy przejęte z innego bufora niż wylosowany
+        long stolen;
+
+        // Operacje na buforach spoza grupy lokalności procesu
+        long remotePuts;
+        long remoteTakes;
+
+        // Przelane paczki producentów i nieudane wstawienia (liczba, łączny czas)
+        long spilled;
+        long putTimeouts;
+        long putTimeoutNanos;
+
+        // Ładunki uszkodzone między producentem a konsumentem (powinno być 0)
+        long corruptPayloads;
+
+        // Tryb z kolejnością: dostarczone w kolejności, pominięte numery, spóźnione
+        long orderedDelivered;
+        long orderGaps;
+        long lateItems;
+
+        // Zamknięcie: niewstawione numery, elementy zostawione w buforach
+        // (wyprodukowane = skonsumowane + leftover) i czas od terminu do końca
+        long unplaced;
+        long leftover;
+        long shutdownMillis;
+
+        // Czas od uruchomienia do zgłoszenia się wszystkich procesów
+        long startupMillis;
+
+        // Cały przebieg: odśmiecania i bajty zaalokowane przez wątki procesów
+        // i dispatcherów (-1, gdy JVM nie mierzy alokacji, np. wątki wirtualne)
+        long syncs;
+        long gcCount;
+        long gcMillis;
+        long workerAllocatedBytes;
+        long dispatcherAllocatedBytes;
+
+        // Zmiana obciążenia: ms do zbieżności tablicy wag (-1 = brak)
+        // i ostatni stosunek czasów wolnych buforów do pozostałych
+        long shiftConvergedMillis = -1;
+        double shiftRatio;
+
+        // Trwałe bufory: zastane w segmentach przy starcie i zostawione w nich
+        // (wyprodukowane + recovered = skonsumowane + leftover + persisted)
+        long recovered;
+        long persisted;
+
+        // Scalone histogramy opóźnień (null, gdy wyłączone)
+        LatencyHistogram[] putLatency;
+        LatencyHistogram[] takeLatency;
+        LatencyHistogram producerSyncLatency;
+        LatencyHistogram consumerSyncLatency;
+
+        Snapshot(long produced, long consumed, long[] perBuffer) {
+            this.produced = produced;
+            this.consumed = consumed;
+            this.perBuffer = perBuffer;
+        }
+
+        /**
+         * Przyrost liczników względem wcześniejszej migawki. Wartości
+         * zapisywane dopiero po przebiegu (zamknięcie, okno kolejności)
+         * dotyczą całości i nie są tu przenoszone, a histogramy okna
+         * dokłada measuredSnapshot().
+         */
+        Snapshot minus(Snapshot earlier) {
+            long[] buffers = new long[perBuffer.length];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = perBuffer[i] - earlier.perBuffer[i];
+            }
+            Snapshot window = new Snapshot(produced - earlier.produced, 
+                                           consumed - earlier.consumed, buffers);
+            window.stolen = stolen - earlier.stolen;
+            window.remotePuts = remotePuts - earlier.remotePuts;
+            window.remoteTakes = remoteTakes - earlier.remoteTakes;
+            window.spilled = spilled - earlier.spilled;
+            window.putTimeouts = putTimeouts - earlier.putTimeouts;
+            window.putTimeoutNanos = putTimeoutNanos - earlier.putTimeoutNanos;
+            window.corruptPayloads = corruptPayloads - earlier.corruptPayloads;
+            window.lateItems = lateItems - earlier.lateItems;
+            return window;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.SplittableRandom;
+
+/**
+ * Polityka wyboru bufora przez producentów i konsumentów.
+ *
+ * WEIGHTED    - losowanie według wag z czasów oczekiwania (pierwotna).
+ * TWO_CHOICES - dwa losowe bufory, wybór według głębokości kolejki.
+ * UCB         - bandyta UCB na nagrodzie z opóźnień względnych do średniej procesu.
+ * THOMPSON    - bandyta z próbkowaniem Thompsona na tej samej nagrodzie.
+ * ROUND_ROBIN - kolejno po buforach, bez żadnej informacji zwrotnej.
+ *
+ * Tylko WEIGHTED losuje dispatchera według jego wagi. Pozostałe wybierają
+ * go z prawdopodobieństwem 1/(B+1) (ROUND_ROBIN - co B+1 wybór), czyli tak
+ * często jak WEIGHTED przy równych wagach.
+ */
+public enum SelectionPolicy {
+    WEIGHTED,
+    TWO_CHOICES,
+    UCB,
+    THOMPSON,
+    ROUND_ROBIN;
+
+    /**
+     * Tworzy politykę dla jednego procesu.
+     * @param queues bufory systemu (odczyt głębokości w TWO_CHOICES)
+     * @param producer true dla producenta - wybór mniej zapełnionych buforów
+     */
+    BufferSelectionPolicy create(ItemBuffer[] queues, boolean producer, 
+                                 PolicySettings settings, SplittableRandom rand) {
+        switch (this) {
+            case TWO_CHOICES:
+                return new TwoChoicesPolicy(queues, producer, rand);
+            case UCB:
+                return new UcbPolicy(queues.length, settings, rand);
+            case THOMPSON:
+                return new ThompsonPolicy(queues.length, settings, rand);
+            case ROUND_ROBIN:
+                return new RoundRobinPolicy(queues.length, rand);
+            case WEIGHTED:
+            default:
+                return new WeightedPolicy(queues.length, producer, settings, rand);
+        }
+    }
+
+    /** Nazwa w opcjach: małe litery, '-' zamiast '_'. */
+    String optionName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    static SelectionPolicy parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieznana polityka wyboru bufora: " + name);
+        }
+    }
+}
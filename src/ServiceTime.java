@@ -0,0 +1,110 @@
+import java.util.SplittableRandom;
+
+/**
+ * Rozkład czasu obsługi jednego elementu w modelu obciążenia (Workload).
+ *
+ * const:US            - zawsze US mikrosekund,
+ * exp:US              - wykładniczy o średniej US,
+ * bimodal:US1:US2:P   - US2 z prawdopodobieństwem P, w przeciwnym razie US1,
+ * stall:US:CO_MS:NA_MS - US na element, a średnio co CO_MS czasu obsługi
+ *                       przestój NA_MS (jak pauza GC albo wolne I/O).
+ */
+final class ServiceTime {
+
+    enum Kind {
+        CONSTANT,
+        EXPONENTIAL,
+        BIMODAL,
+        STALLS
+    }
+
+    final Kind kind;
+    private final long nanos;
+    private final long slowNanos;      // BIMODAL - drugi tryb, STALLS - długość przestoju
+    private final double slowShare;    // BIMODAL - P, STALLS - szansa przestoju na element
+    private final String spec;
+
+    private ServiceTime(Kind kind, long nanos, long slowNanos, double slowShare, String spec) {
+        this.kind = kind;
+        this.nanos = nanos;
+        this.slowNanos = slowNanos;
+        this.slowShare = slowShare;
+        this.spec = spec;
+    }
+
+    static ServiceTime parse(String spec) {
+        String[] parts = spec.toLowerCase().split(":");
+        try {
+            switch (parts[0]) {
+                case "const":
+                    expect(parts, 2, spec);
+                    return new ServiceTime(Kind.CONSTANT, micros(parts[1]), 0, 0, spec);
+                case "exp":
+                    expect(parts, 2, spec);
+                    return new ServiceTime(Kind.EXPONENTIAL, micros(parts[1]), 0, 0, spec);
+                case "bimodal": {
+                    expect(parts, 4, spec);
+                    double share = Double.parseDouble(parts[3]);
+                    if (!(share >= 0 && share <= 1)) {
+                        throw new IllegalArgumentException("udział drugiego trybu musi być w [0, 1]: " + spec);
+                    }
+                    return new ServiceTime(Kind.BIMODAL, micros(parts[1]), micros(parts[2]), share, spec);
+                }
+                case "stall": {
+                    expect(parts, 4, spec);
+                    long nanos = micros(parts[1]);
+                    long every = Long.parseLong(parts[2]) * 1_000_000L;
+                    if (nanos <= 0 || every <= 0) {
+                        throw new IllegalArgumentException("stall wymaga US > 0 i CO_MS > 0: " + spec);
+                    }
+                    return new ServiceTime(Kind.STALLS, nanos, Long.parseLong(parts[3]) * 1_000_000L,
+                                           Math.min(1.0, (double) nanos / every), spec);
+                }
+                default:
+                    throw new IllegalArgumentException("nieznany rozkład czasu obsługi "
+                        + "(const, exp, bimodal, stall): " + spec);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("nieprawidłowa liczba w " + spec);
+        }
+    }
+
+    /** Czas obsługi kolejnego elementu w ns, przemnożony przez scale (wolny proces). */
+    long sample(SplittableRandom rand, double scale) {
+        double value;
+        switch (kind) {
+            case EXPONENTIAL:
+                value = -Math.log(1.0 - rand.nextDouble()) * nanos;
+                break;
+            case BIMODAL:
+                value = (rand.nextDouble() < slowShare) ? slowNanos : nanos;
+                break;
+            case STALLS:
+                value = nanos + ((rand.nextDouble() < slowShare) ? slowNanos : 0);
+                break;
+            case CONSTANT:
+            default:
+                value = nanos;
+        }
+        return (long) (value * scale);
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private static long micros(String value) {
+        long micros = Long.parseLong(value);
+        if (micros < 0) {
+            throw new IllegalArgumentException("czas obsługi musi być >= 0: " + value);
+        }
+        return micros * 1_000L;
+    }
+
+    private static void expect(String[] parts, int count, String spec) {
+        if (parts.length != count) {
+            throw new IllegalArgumentException("nieprawidłowy rozkład czasu obsługi: " + spec);
+        }
+    }
+}
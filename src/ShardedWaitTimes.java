@@ -0,0 +1,83 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Tablice czasów oczekiwania publikowane przez shardy dispatchera.
+ * Każdy shard okresowo wystawia kopię swojej tablicy i wag slotów (suma
+ * wag próbek po wygaszeniu, patrz DecayingWaitTimes), a przy odpowiedziach
+ * dolicza opublikowane tablice pozostałych shardów. Dla percentyli wynik
+ * jest średnią ważoną percentyli shardów - przybliżeniem, nie percentylem
+ * całości.
+ *
+ * Każdy shard ma własne tablice nadpisywane w miejscu, więc scalanie nie
+ * alokuje. Publikacja i odczyt są co SHARD_MERGE_INTERVAL_MS, więc
+ * wystarczają zwykłe blokady zapisu i odczytu.
+ */
+class ShardedWaitTimes {
+
+    private final StampedLock[] locks;
+    private final long[][] values;
+    private final double[][] weights;
+    private final boolean[] present; // czy shard już coś opublikował (pod blokadą)
+
+    ShardedWaitTimes(int shards, int length) {
+        this.locks = new StampedLock[shards];
+        this.values = new long[shards][length];
+        this.weights = new double[shards][length];
+        this.present = new boolean[shards];
+        for (int s = 0; s < shards; s++) {
+            locks[s] = new StampedLock();
+        }
+    }
+
+    void publish(int shard, long[] localValues, double[] localWeights) {
+        long stamp = locks[shard].writeLock();
+        try {
+            System.arraycopy(localValues, 0, values[shard], 0, values[shard].length);
+            System.arraycopy(localWeights, 0, weights[shard], 0, weights[shard].length);
+            present[shard] = true;
+        } finally {
+            locks[shard].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sumuje (wartość * waga) oraz wagi wszystkich shardów poza podanym.
+     */
+    void collectOthers(int shard, double[] weightedSum, double[] othersWeights) {
+        for (int i = 0; i < weightedSum.length; i++) {
+            weightedSum[i] = 0;
+            othersWeights[i] = 0;
+        }
+        for (int s = 0; s < locks.length; s++) {
+            if (s == shard) continue;
+            addShard(s, weightedSum, othersWeights);
+        }
+    }
+
+    private void addShard(int s, double[] weightedSum, double[] othersWeights) {
+        long stamp = locks[s].readLock();
+        try {
+            if (!present[s]) return;
+            for (int i = 0; i < weightedSum.length && i < values[s].length; i++) {
+                weightedSum[i] += (double) values[s][i] * weights[s][i];
+                othersWeights[i] += weights[s][i];
+            }
+        } finally {
+            locks[s].unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Średnia ważona wagami slotów z lokalnej tablicy i sumy pozostałych
+     * shardów, zapisana do merged.
+     */
+    static void merge(long[] localValues, double[] localWeights,
+                      double[] othersWeightedSum, double[] othersWeights, long[] merged) {
+        for (int i = 0; i < merged.length; i++) {
+            double total = localWeights[i] + othersWeights[i];
+            merged[i] = (total > 0)
+                ? (long) (((double) localValues[i] * localWeights[i] + othersWeightedSum[i]) / total)
+                : 0;
+        }
+    }
+}
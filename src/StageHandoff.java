@@ -0,0 +1,105 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wejście etapu potoku dla jednego procesu poprzedniego etapu. Proces,
+ * który pobrał paczkę ze swoich buforów, wstawia ją tu od razu do buforów
+ * następnego etapu - jako jego producent, z własną polityką i połączeniem
+ * z dispatcherem producentów tego etapu, bez dodatkowego wątku pomiędzy.
+ *
+ * put() czeka, aż cała paczka się zmieści, więc pełne bufory następnego
+ * etapu zatrzymują pobieranie w poprzednim, jego bufory się zapełniają i
+ * przeciwciśnienie dochodzi aż do źródeł. Po zakończeniu przebiegu czeka
+ * najwyżej GIVE_UP_MS - nie wstawione elementy liczą się jako niewstawione
+ * (unplaced) w statystykach etapu.
+ */
+final class StageHandoff {
+
+    private static final long OFFER_WAIT_MS = 50;
+    private static final long GIVE_UP_MS = 1000;
+
+    private final int pid;
+    private final ItemBuffer[] queues;
+    private final int numBuffers;
+    private final BufferSelectionPolicy policy;
+    private final DispatcherLink dispatcher;
+    private final RunStatistics stats;
+    private final PhaseController phases;
+    private final AtomicInteger activeProducers;
+    private final long[] waitTimes;
+
+    StageHandoff(int pid, ItemBuffer[] queues, BufferSelectionPolicy policy, DispatcherLink dispatcher,
+                 RunStatistics stats, PhaseController phases, AtomicInteger activeProducers) {
+        this.pid = pid;
+        this.queues = queues;
+        this.numBuffers = queues.length;
+        this.policy = policy;
+        this.dispatcher = dispatcher;
+        this.stats = stats;
+        this.phases = phases;
+        this.activeProducers = activeProducers;
+        this.waitTimes = new long[numBuffers + 1];
+    }
+
+    /**
+     * Wstawia count elementów z batch do buforów etapu, czekając na miejsce.
+     * @return false, gdy po zakończeniu przebiegu część nie zmieściła się w GIVE_UP_MS
+     */
+    boolean put(int[] batch, int count) {
+        int placed = 0;
+        long giveUpAt = Long.MAX_VALUE;
+
+        while (placed < count) {
+            int target = policy.select();
+
+            if (target == numBuffers) {
+                long[] aggregated = dispatcher.sync(waitTimes);
+                if (aggregated != null) {
+                    policy.onSync(aggregated);
+                    DispatcherEvents.weightUpdate(true, pid, policy, numBuffers);
+                }
+                continue;
+            }
+
+            long startTime = System.nanoTime();
+            if (!phases.running()) {
+                if (giveUpAt == Long.MAX_VALUE) giveUpAt = startTime + GIVE_UP_MS * 1_000_000L;
+                if (startTime - giveUpAt >= 0) {
+                    stats.addUnplaced(pid, count - placed);
+                    return false;
+                }
+            }
+
+            try {
+                int put = queues[target].offerBatch(batch, placed, count - placed,
+                    OFFER_WAIT_MS, TimeUnit.MILLISECONDS);
+                long elapsed = System.nanoTime() - startTime;
+                stats.recordPut(pid, target, elapsed);
+
+                if (put > 0) {
+                    long perItem = elapsed / put;
+                    waitTimes[target] = perItem;
+                    policy.onSuccess(target, perItem);
+                    stats.addProduced(pid, put);
+                    placed += put;
+                } else {
+                    // Pełny bufor - przeciwciśnienie z tego etapu
+                    stats.addPutTimeout(pid, elapsed);
+                    DispatcherEvents.bufferTimeout(true, pid, target, elapsed);
+                    policy.onMiss(target, elapsed);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stats.addUnplaced(pid, count - placed);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Zgłasza zakończenie producenta: dispatcher etapu i konsumenci przestają na niego czekać. */
+    void close() {
+        activeProducers.decrementAndGet();
+        dispatcher.terminate();
+    }
+}
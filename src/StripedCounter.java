@@ -0,0 +1,27 @@
+/**
+ * Licznik long rozłożony na paski - każdy proces zwiększa własną komórkę
+ * (osobna linia cache), a odczyt sumuje wszystkie komórki.
+ */
+class StripedCounter {
+
+    private final PaddedLong[] cells;
+
+    StripedCounter(int stripes) {
+        this.cells = new PaddedLong[Math.max(stripes, 1)];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new PaddedLong(0);
+        }
+    }
+
+    void add(int stripe, long delta) {
+        cells[stripe].getAndAdd(delta);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (PaddedLong cell : cells) {
+            sum += cell.get();
+        }
+        return sum;
+    }
+}
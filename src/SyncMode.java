@@ -0,0 +1,17 @@
+/**
+ * Sposób synchronizacji tablic wag z dispatcherem.
+ * CHANNEL - żądanie/odpowiedź przez kanały JCSP (pierwotny),
+ * ASYNC - wysyłka bez odpowiedzi i odczyt opublikowanej migawki.
+ */
+public enum SyncMode {
+    CHANNEL,
+    ASYNC;
+
+    static SyncMode parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieznany tryb synchronizacji: " + name);
+        }
+    }
+}
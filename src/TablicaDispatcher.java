@@ -1,517 +1,733 @@
 import org.jcsp.lang.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import org.jcsp.util.Buffer;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.Random;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * System Producent-Konsument z tablicami wag i dispatcherami.
- * Działa przez określony czas przy użyciu timeoutów.
+ * Działa przez określony czas przy użyciu timeoutów. Tu są ustawienia,
+ * budowa etapu i dispatchery; pętle procesów są w ProducerProcess i
+ * ConsumerProcess.
  */
 public class TablicaDispatcher implements CSProcess {
     
+    private static final int BUFFER_CAPACITY = 1000;
+    private static final long SHARD_MERGE_INTERVAL_MS = 10;
+    private static final int ASYNC_CHANNEL_CAPACITY = 4096;
+    private static final int ASYNC_PUBLISH_EVERY = 64;
+    private static final long METRICS_PUBLISH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String DEFAULT_EVENT_LOG = "tablica-dispatcher.csplog";
+    
+    /** Katalog segmentów buforów dla backendu MAPPED. */
+    static final String DEFAULT_STORE_DIR = "tablica-bufory";
+    
+    /** Rozmiar okna kolejności dla order=on. */
+    static final int DEFAULT_ORDER_WINDOW = 1 << 16;
+    
+    /** Okres połowiczny wygaszania czasów w dispatcherze. */
+    static final long DEFAULT_DECAY_MILLIS = 1000;
+    
+    /** Dodatkowy czas pobrania z wolnych buforów po zmianie obciążenia. */
+    static final long DEFAULT_SHIFT_DELAY_MICROS = 200;
+    
     private final int numProducers;
     private final int numBuffers;
     private final int numConsumers;
     private final int durationSeconds;
     private final boolean print;
-    private final AtomicInteger[] bufferStats;
+    private final RunStatistics stats;
     private final AtomicBoolean stopFlag;
-    private final AtomicInteger totalProduced;
-    private final AtomicInteger totalConsumed;
-    private final long stopTimeMillis;
+    private BufferBackend bufferBackend = BufferBackend.QUEUE;
+    private Path storeDir = Paths.get(DEFAULT_STORE_DIR);
+    private int batchSize = 1;
+    private int dispatcherShards = 1;
+    private SyncMode syncMode = SyncMode.CHANNEL;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private ConsumerStrategy consumerStrategy = ConsumerStrategy.WEIGHTED;
+    private boolean spillOnFull = false;
+    private SelectionPolicy selectionPolicy = SelectionPolicy.WEIGHTED;
+    private PolicySettings policySettings = new PolicySettings();
+    private int payloadSize = 0;
+    private int orderWindow = 0;
+    private long warmupMillis = 0;
+    private long cooldownMillis = 0;
+    private int metricsPort = -1;
+    private Path eventLogPath = null;
+    private int localityGroups = 1;
+    private double remoteShare = 0.1;
+    private boolean pinThreads = false;
+    private long decayMillis = DEFAULT_DECAY_MILLIS;
+    private double aggregatePercentile = 0;
+    private long shiftMillis = 0;
+    private long shiftDelayMicros = DEFAULT_SHIFT_DELAY_MICROS;
+    private volatile LoadShift loadShift;
+    private Workload workload = null;
+    private volatile LiveMetrics metrics;
     
     public TablicaDispatcher(int numProducers, int numBuffers, int numConsumers, 
                               int durationSeconds, boolean print) {
         this(numProducers, numBuffers, numConsumers, durationSeconds, print, 
-             null, new AtomicBoolean(false), new AtomicInteger(0), new AtomicInteger(0));
+             new RunStatistics(numProducers, numBuffers, numConsumers), new AtomicBoolean(false));
     }
     
     public TablicaDispatcher(int numProducers, int numBuffers, int numConsumers, 
-                              int durationSeconds, boolean print, AtomicInteger[] bufferStats,
-                              AtomicBoolean stopFlag, AtomicInteger totalProduced, 
-                              AtomicInteger totalConsumed) {
+                              int durationSeconds, boolean print, RunStatistics stats,
+                              AtomicBoolean stopFlag) {
         this.numProducers = numProducers;
         this.numBuffers = numBuffers;
         this.numConsumers = numConsumers;
         this.durationSeconds = durationSeconds;
         this.print = print;
-        this.bufferStats = bufferStats;
+        this.stats = stats;
         this.stopFlag = stopFlag;
-        this.totalProduced = totalProduced;
-        this.totalConsumed = totalConsumed;
-        this.stopTimeMillis = System.currentTimeMillis() + (durationSeconds * 1000L);
+    }
+    
+    /**
+     * Wybór implementacji buforów - musi być ustawiony przed run().
+     * MAPPED nie łączy się z ładunkiem i oknem kolejności (TestConfig.validate).
+     */
+    public void setBufferBackend(BufferBackend bufferBackend) {
+        this.bufferBackend = bufferBackend;
+    }
+    
+    /**
+     * Katalog segmentów backendu MAPPED. Przebieg z tym samym katalogiem i
+     * liczbą buforów zaczyna od elementów niepobranych w poprzednim, a
+     * elementy, które zostaną w buforach, zostają w plikach dla następnego.
+     */
+    public void setStore(Path storeDir) {
+        this.storeDir = storeDir;
+    }
+    
+    /**
+     * Liczba elementów wstawianych/pobieranych z wybranego bufora za jednym
+     * wyborem wagowym. 1 = tryb pojedynczy (domyślny).
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Rozmiar paczki musi być >= 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Liczba shardów dispatchera po każdej stronie. Shard obsługuje procesy
+     * o id % dispatcherShards == shard i okresowo scala tablice z pozostałymi.
+     */
+    public void setDispatcherShards(int dispatcherShards) {
+        if (dispatcherShards < 1) {
+            throw new IllegalArgumentException("Liczba shardów musi być >= 1: " + dispatcherShards);
+        }
+        this.dispatcherShards = dispatcherShards;
+    }
+    
+    /**
+     * Tryb synchronizacji z dispatcherem. W trybie ASYNC procesy wysyłają
+     * czasy do buforowanego kanału i czytają migawkę publikowaną przez shard.
+     */
+    public void setSyncMode(SyncMode syncMode) {
+        this.syncMode = syncMode;
+    }
+    
+    /** Tryb wykonania procesów (wątki systemowe albo wirtualne). */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+    
+    /**
+     * Strategia pobierania elementów przez konsumentów. W trybie STEALING
+     * konsument nie czeka na pustym buforze, gdy inne mają elementy.
+     */
+    public void setConsumerStrategy(ConsumerStrategy consumerStrategy) {
+        this.consumerStrategy = consumerStrategy;
+    }
+    
+    /**
+     * Przelewanie paczek producenta: gdy wybrany bufor jest pełny, reszta
+     * trafia od razu do kolejnych buforów w kolejności wag, a czekanie
+     * następuje dopiero wtedy, gdy pełne są wszystkie.
+     */
+    public void setSpillOnFull(boolean spillOnFull) {
+        this.spillOnFull = spillOnFull;
+    }
+    
+    /**
+     * Polityka wyboru bufora i jej parametry (wspólne dla wszystkich procesów,
+     * każdy proces dostaje własną instancję polityki).
+     */
+    public void setSelectionPolicy(SelectionPolicy selectionPolicy, PolicySettings policySettings) {
+        this.selectionPolicy = selectionPolicy;
+        this.policySettings = policySettings;
+    }
+    
+    /**
+     * Rozmiar ładunku elementu w bajtach (0 = sam numer elementu). Przy
+     * ładunku przez bufory przechodzą indeksy slotów w PayloadArena.
+     */
+    public void setPayloadSize(int payloadSize) {
+        if (payloadSize != 0 && payloadSize < Long.BYTES) {
+            throw new IllegalArgumentException("Ładunek musi być 0 albo >= 8 bajtów: " + payloadSize);
+        }
+        this.payloadSize = payloadSize;
+    }
+    
+    /**
+     * Dostarczanie w kolejności numerów: konsumenci wkładają pobrane elementy
+     * do ReorderWindow o podanym rozmiarze (zaokrąglonym w górę do potęgi 2),
+     * a przetwarzanie następuje w kolejności wyprodukowania. 0 = wyłączone.
+     * Tylko w ostatnim etapie potoku (Pipeline odrzuca pozostałe) - reszta
+     * okna dostarczana po zakończeniu konsumentów nie miałaby już dokąd trafić.
+     */
+    public void setOrderWindow(int orderWindow) {
+        if (orderWindow < 0) {
+            throw new IllegalArgumentException("Rozmiar okna kolejności musi być >= 0: " + orderWindow);
+        }
+        int size = (orderWindow > 0) ? Integer.highestOneBit(orderWindow) : 0;
+        this.orderWindow = (size < orderWindow) ? size << 1 : size;
+    }
+    
+    /**
+     * Rozgrzewka przed oknem pomiaru i wygaszanie po nim (ms). Okno pomiaru
+     * trwa durationSeconds, a raportowane liczby pochodzą tylko z niego.
+     */
+    public void setPhases(long warmupMillis, long cooldownMillis) {
+        if (warmupMillis < 0 || cooldownMillis < 0) {
+            throw new IllegalArgumentException("Czas rozgrzewki i wygaszania musi być >= 0: " 
+                + warmupMillis + ", " + cooldownMillis);
+        }
+        this.warmupMillis = warmupMillis;
+        this.cooldownMillis = cooldownMillis;
+    }
+    
+    /**
+     * Port lokalnego serwera z migawką LiveMetrics (/metrics) na czas
+     * przebiegu. -1 = wyłączony (domyślnie), 0 = dowolny wolny port.
+     */
+    public void setMetricsPort(int metricsPort) {
+        if (metricsPort < -1 || metricsPort > 65535) {
+            throw new IllegalArgumentException("Niepoprawny port metryk: " + metricsPort);
+        }
+        this.metricsPort = metricsPort;
+    }
+    
+    /**
+     * Plik dziennika zdarzeń (EventLog). Przy print bez ustawionej ścieżki
+     * dziennik trafia do DEFAULT_EVENT_LOG - logi nie idą już na System.out,
+     * odczyt: java EventLogDecoder PLIK.
+     */
+    public void setEventLog(Path eventLogPath) {
+        this.eventLogPath = eventLogPath;
+    }
+    
+    /**
+     * Grupy lokalności (LocalityGroups): bufory dzielone na groups ciągłych
+     * przedziałów, proces wybiera bufor spoza swojej grupy z
+     * prawdopodobieństwem ok. remoteShare, a przelewa i podbiera najpierw
+     * we własnej grupie. pin przypina wątki procesów do procesorów grupy
+     * (tylko ExecutionMode.PLATFORM - w VIRTUAL wątek nie należy do procesu).
+     */
+    public void setLocality(int groups, double remoteShare, boolean pin) {
+        if (groups < 1) {
+            throw new IllegalArgumentException("Liczba grup lokalności musi być >= 1: " + groups);
+        }
+        if (!(remoteShare >= 0 && remoteShare <= 1)) {
+            throw new IllegalArgumentException("Udział buforów obcych musi być w [0, 1]: " + remoteShare);
+        }
+        this.localityGroups = groups;
+        this.remoteShare = remoteShare;
+        this.pinThreads = pin;
+    }
+    
+    /**
+     * Agregacja czasów w dispatcherach (DecayingWaitTimes): decayMillis to
+     * okres połowiczny wygaszania (0 = średnia z całego przebiegu),
+     * percentile - statystyka w tablicy wag (0 = średnia, inaczej percentyl).
+     */
+    public void setAggregation(long decayMillis, double percentile) {
+        if (decayMillis < 0) {
+            throw new IllegalArgumentException("Okres wygaszania musi być >= 0: " + decayMillis);
+        }
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentyl musi być w [0, 100]: " + percentile);
+        }
+        this.decayMillis = decayMillis;
+        this.aggregatePercentile = percentile;
+    }
+    
+    /**
+     * Zmiana obciążenia w trakcie przebiegu (LoadShift): po afterMillis od
+     * startu pobrania z pierwszej ćwiartki buforów trwają dodatkowo
+     * delayMicros na element. afterMillis = 0 wyłącza zmianę.
+     */
+    public void setLoadShift(long afterMillis, long delayMicros) {
+        if (afterMillis < 0 || delayMicros < 0) {
+            throw new IllegalArgumentException("Parametry zmiany obciążenia muszą być >= 0: " 
+                + afterMillis + ", " + delayMicros);
+        }
+        this.shiftMillis = afterMillis;
+        this.shiftDelayMicros = delayMicros;
+    }
+    
+    /**
+     * Model obciążenia (Workload): czasy obsługi, praca CPU, wolni
+     * konsumenci i wolne bufory. null albo model nieaktywny - procesy
+     * tylko przekładają elementy.
+     */
+    public void setWorkload(Workload workload) {
+        this.workload = workload;
+    }
+    
+    /** Zmiana obciążenia ostatniego przebiegu (null, gdy wyłączona). */
+    LoadShift loadShift() {
+        return loadShift;
+    }
+    
+    /** Podgląd działającego przebiegu (null przed run()). */
+    public LiveMetrics metrics() {
+        return metrics;
     }
     
     @Override
     public void run() {
-        // Użyjemy ArrayBlockingQueue zamiast kanałów JCSP dla lepszej kontroli timeoutów
-        ArrayBlockingQueue<Integer>[] bufferQueues = new ArrayBlockingQueue[numBuffers];
+        // Fazy przebiegu - czas biegnie od zgłoszenia się wszystkich procesów
+        final PhaseController phases = new PhaseController(stats, numProducers + numConsumers, 
+            warmupMillis, durationSeconds * 1000L, cooldownMillis);
+        phases.start();
+        
+        Stage stage = assemble(phases, false, null);
+        long gcCountStart = AllocationProbe.gcCount();
+        long gcMillisStart = AllocationProbe.gcMillis();
+        
+        executionMode.run(stage.processes, stage.dispatchers);
+        stats.recordGc(AllocationProbe.gcCount() - gcCountStart, 
+                       AllocationProbe.gcMillis() - gcMillisStart);
+        stage.finish();
+        
+        stopFlag.set(true);
+    }
+    
+    /**
+     * Buduje procesy i dispatchery systemu bez uruchamiania. fedByUpstream -
+     * etap potoku, którego producentami są konsumenci poprzedniego etapu
+     * (własnych producentów nie tworzy, a numProducers to liczba procesów
+     * poprzedniego etapu). downstream - następny etap potoku: konsumenci
+     * wstawiają pobrane elementy od razu do jego buforów (null = koniec).
+     */
+    Stage assemble(PhaseController phases, boolean fedByUpstream, Stage downstream) {
+        // Bufory z timeoutami zamiast kanałów JCSP dla lepszej kontroli czasu oczekiwania
+        ItemBuffer[] bufferQueues = new ItemBuffer[numBuffers];
+        BufferBackend backend = bufferBackend;
+        boolean mapped = backend == BufferBackend.MAPPED;
+        MappedItemBuffer[] stores = mapped ? new MappedItemBuffer[numBuffers] : null;
+        long recovered = 0;
         for (int i = 0; i < numBuffers; i++) {
-            bufferQueues[i] = new ArrayBlockingQueue<>(1000);
+            bufferQueues[i] = backend.create(BUFFER_CAPACITY, storeDir, i);
+            if (mapped) {
+                stores[i] = (MappedItemBuffer) bufferQueues[i];
+                recovered += stores[i].recovered();
+            }
+        }
+        if (recovered > 0) {
+            System.out.println("Odzyskano z " + storeDir + ": " + recovered + " elementów");
         }
         
-        // Kanały do dispatcherów (można zostawić JCSP)
-        Any2OneChannel producerDispatcherIn = Channel.any2one();
-        One2OneChannel[] producerDispatcherOut = new One2OneChannel[numProducers];
-        for (int i = 0; i < numProducers; i++) {
-            producerDispatcherOut[i] = Channel.one2one();
+        // Grupy lokalności - więcej grup niż buforów nie ma sensu
+        final LocalityGroups locality = (localityGroups > 1 || pinThreads)
+            ? new LocalityGroups(Math.min(localityGroups, numBuffers), numBuffers, pinThreads)
+            : null;
+        
+        final LoadShift shift = (shiftMillis > 0) 
+            ? new LoadShift(phases, shiftMillis, shiftDelayMicros, numBuffers) : null;
+        loadShift = shift;
+        final Workload model = (workload != null && workload.isActive()) ? workload : null;
+        
+        metrics = new LiveMetrics(bufferQueues, numProducers, numConsumers, stats, phases);
+        MetricsHttpExporter exporter = null;
+        if (metricsPort >= 0) {
+            try {
+                exporter = new MetricsHttpExporter(metricsPort, metrics);
+                System.out.println("Metryki: http://127.0.0.1:" + exporter.port() + "/metrics");
+            } catch (IOException e) {
+                System.err.println("Nie udało się uruchomić serwera metryk: " + e.getMessage());
+            }
         }
         
-        Any2OneChannel consumerDispatcherIn = Channel.any2one();
+        Path logPath = (eventLogPath != null) ? eventLogPath 
+            : (print ? Paths.get(DEFAULT_EVENT_LOG) : null);
+        EventLog eventLog = null;
+        if (logPath != null) {
+            try {
+                eventLog = new EventLog(logPath, dispatcherShards);
+            } catch (IOException e) {
+                System.err.println("Nie udało się otworzyć dziennika zdarzeń: " + e.getMessage());
+            }
+        }
+        final EventLog events = eventLog;
+        
+        // Kanały do dispatcherów (można zostawić JCSP) - osobne wejście dla każdego sharda
+        boolean async = syncMode == SyncMode.ASYNC;
+        Any2OneChannel[] producerDispatcherIn = new Any2OneChannel[dispatcherShards];
+        Any2OneChannel[] consumerDispatcherIn = new Any2OneChannel[dispatcherShards];
+        PublishedWaitTimes[] producerPublished = new PublishedWaitTimes[dispatcherShards];
+        PublishedWaitTimes[] consumerPublished = new PublishedWaitTimes[dispatcherShards];
+        for (int i = 0; i < dispatcherShards; i++) {
+            if (async) {
+                // Buforowany kanał - zapis nie czeka na dispatcher
+                producerDispatcherIn[i] = Channel.any2one(new Buffer(ASYNC_CHANNEL_CAPACITY));
+                consumerDispatcherIn[i] = Channel.any2one(new Buffer(ASYNC_CHANNEL_CAPACITY));
+                producerPublished[i] = new PublishedWaitTimes(numBuffers + 1);
+                consumerPublished[i] = new PublishedWaitTimes(numBuffers + 1);
+            } else {
+                producerDispatcherIn[i] = Channel.any2one();
+                consumerDispatcherIn[i] = Channel.any2one();
+            }
+        }
+        
+        // Kanały odpowiedzi - tylko w trybie żądanie/odpowiedź. Zatruwalne: kończący
+        // proces zatruwa swój kanał, więc spóźniona odpowiedź nie zablokuje dispatchera
+        One2OneChannel[] producerDispatcherOut = new One2OneChannel[numProducers];
         One2OneChannel[] consumerDispatcherOut = new One2OneChannel[numConsumers];
-        for (int i = 0; i < numConsumers; i++) {
-            consumerDispatcherOut[i] = Channel.one2one();
+        if (!async) {
+            for (int i = 0; i < numProducers; i++) {
+                producerDispatcherOut[i] = Channel.one2one(0);
+            }
+            for (int i = 0; i < numConsumers; i++) {
+                consumerDispatcherOut[i] = Channel.one2one(0);
+            }
         }
         
-        AtomicInteger itemCounter = new AtomicInteger(0);
-        AtomicInteger activeProducers = new AtomicInteger(numProducers);
-        AtomicInteger activeConsumers = new AtomicInteger(numConsumers);
+        // Sloty na wszystko, co może być naraz w buforach, paczkach procesów i oknie kolejności
+        final PayloadArena arena = (payloadSize > 0) 
+            ? new PayloadArena(numBuffers * BUFFER_CAPACITY + (numProducers + numConsumers) * batchSize
+                               + orderWindow, payloadSize)
+            : null;
+        
+        // Okno kolejności - elementy przetwarza ConsumerSink konsumenta, który je dostarcza
+        final ReorderWindow window = (orderWindow > 0) ? new ReorderWindow(orderWindow) : null;
         
-        CSProcess[] processes = new CSProcess[numProducers + numConsumers + 2];
+        ProcessContext context = new ProcessContext(bufferQueues, batchSize, stats, phases,
+            numProducers, selectionPolicy, policySettings, remoteShare);
+        context.arena = arena;
+        context.window = window;
+        context.events = events;
+        context.locality = locality;
+        context.pinned = pinThreads;
+        context.shift = shift;
+        context.model = model;
+        context.metrics = metrics;
+        
+        // W etapie zasilanym z poprzedniego producentami są tamte procesy (StageHandoff)
+        int ownProducers = fedByUpstream ? 0 : numProducers;
+        CSProcess[] processes = new CSProcess[ownProducers + numConsumers];
+        CSProcess[] dispatchers = new CSProcess[2 * dispatcherShards];
         int idx = 0;
         
         // --- PRODUCENCI ---
-        for (int p = 0; p < numProducers; p++) {
-            final int pid = p;
-            final One2OneChannel myDispatcherResponse = producerDispatcherOut[p];
-            final ArrayBlockingQueue<Integer>[] queues = bufferQueues;
-            final long endTime = stopTimeMillis;
-            
-            processes[idx++] = () -> {
-                Random rand = new Random(pid * 1000 + System.nanoTime());
-                CSTimer timer = new CSTimer();
-                
-                double[] weights = new double[numBuffers + 1];
-                long[] waitTimes = new long[numBuffers + 1];
-                
-                for (int i = 0; i <= numBuffers; i++) {
-                    weights[i] = 1.0;
-                    waitTimes[i] = 0;
-                }
-                
-                while (System.currentTimeMillis() < endTime) {
-                    int itemNum = itemCounter.getAndIncrement();
-                    int target = selectByWeight(weights, rand);
-                    
-                    if (target == numBuffers) {
-                        // === DISPATCHER ===
-                        try {
-                            long startTime = System.nanoTime();
-                            
-                            producerDispatcherIn.out().write(
-                                new WeightTableRequest(pid, waitTimes.clone(), false));
-                            
-                            // Timeout na odpowiedź
-                            Alternative alt = new Alternative(new Guard[]{
-                                myDispatcherResponse.in(),
-                                timer
-                            });
-                            
-                            long timeout = timer.read() + 100; // 100ms timeout
-                            timer.setAlarm(timeout);
-                            
-                            int selected = alt.priSelect();
-                            if (selected == 0) {
-                                WeightTableResponse response = 
-                                    (WeightTableResponse) myDispatcherResponse.in().read();
-                                
-                                long elapsed = System.nanoTime() - startTime;
-                                waitTimes[numBuffers] = elapsed;
-                                
-                                updateWeightsFromResponse(weights, response.aggregatedWaitTimes);
-                                
-                                if (print) System.out.println("Producer[" + pid + "]: Synced");
-                            } else {
-                                // Timeout - pomiń synchronizację
-                                if (print) System.out.println("Producer[" + pid + "]: Sync timeout");
-                            }
-                            
-                        } catch (Exception e) {
-                            // Ignoruj błędy synchronizacji
-                        }
-                        
-                    } else {
-                        // === BUFOR ===
-                        long startTime = System.nanoTime();
-                        
-                        try {
-                            boolean success = queues[target].offer(itemNum + 1, 50, 
-                                java.util.concurrent.TimeUnit.MILLISECONDS);
-                            
-                            if (success) {
-                                totalProduced.incrementAndGet();
-                                long elapsed = System.nanoTime() - startTime;
-                                waitTimes[target] = elapsed;
-                                updateWeight(weights, target, elapsed);
-                                
-                                if (print) System.out.println("Producer[" + pid + "]: " + 
-                                    (itemNum + 1) + " -> Buffer[" + target + "]");
-                            } else {
-                                // Timeout - zwiększ wagę innych buforów
-                                weights[target] *= 0.9;
-                            }
-                        } catch (InterruptedException e) {
-                            break;
-                        }
-                    }
-                    
-                    // Sprawdź czas
-                    if (System.currentTimeMillis() >= endTime) break;
-                }
-                
-                // Zakończenie
-                int remaining = activeProducers.decrementAndGet();
-                if (remaining == 0) {
-                    // Ostatni producent wysyła POISON
-                    for (int b = 0; b < numBuffers; b++) {
-                        try {
-                            queues[b].offer(-1, 100, java.util.concurrent.TimeUnit.MILLISECONDS);
-                        } catch (InterruptedException e) {
-                            break;
-                        }
-                    }
-                    if (print) System.out.println("Producer[" + pid + "]: Sent POISON");
-                }
-                
-                try {
-                    producerDispatcherIn.out().write(new WeightTableRequest(pid, null, true));
-                } catch (Exception e) {
-                    // Ignoruj
-                }
-                
-                if (print) System.out.println("Producer[" + pid + "]: Finished");
-            };
+        for (int p = 0; p < ownProducers; p++) {
+            DispatcherLink dispatcher = new DispatcherLink(p, 
+                producerDispatcherIn[p % dispatcherShards], producerDispatcherOut[p], 
+                producerPublished[p % dispatcherShards], numBuffers, 
+                stats, true);
+            Workload.Worker maker = (model != null) ? model.producer(p) : null;
+            processes[idx++] = new ProducerProcess(context, p, dispatcher, spillOnFull, maker);
         }
         
         // --- KONSUMENCI ---
         for (int c = 0; c < numConsumers; c++) {
-            final int cid = c;
-            final One2OneChannel myDispatcherResponse = consumerDispatcherOut[c];
-            final ArrayBlockingQueue<Integer>[] queues = bufferQueues;
-            final long endTime = stopTimeMillis;
+            DispatcherLink dispatcher = new DispatcherLink(c, 
+                consumerDispatcherIn[c % dispatcherShards], consumerDispatcherOut[c], 
+                consumerPublished[c % dispatcherShards], numBuffers, 
+                stats, false);
+            // Konsument etapu jest producentem następnego - bez dodatkowego przekazania
+            StageHandoff next = (downstream != null) ? downstream.handoff(c) : null;
+            Workload.Worker worker = (model != null) ? model.consumer(c, numConsumers) : null;
+            processes[idx++] = new ConsumerProcess(context, c, dispatcher, 
+                consumerStrategy == ConsumerStrategy.STEALING, next, worker);
+        }
+        
+        // --- DISPATCHERY (shardy) ---
+        ShardedWaitTimes producerShards = new ShardedWaitTimes(dispatcherShards, numBuffers + 1);
+        ShardedWaitTimes consumerShards = new ShardedWaitTimes(dispatcherShards, numBuffers + 1);
+        idx = 0;
+        for (int shard = 0; shard < dispatcherShards; shard++) {
+            dispatchers[idx++] = createDispatcher(true, shard, numProducers, 
+                producerDispatcherIn[shard], producerDispatcherOut, 
+                producerPublished[shard], producerShards, events, null);
+            dispatchers[idx++] = createDispatcher(false, shard, numConsumers, 
+                consumerDispatcherIn[shard], consumerDispatcherOut, 
+                consumerPublished[shard], consumerShards, events, (shard == 0) ? shift : null);
+        }
+        
+        for (int i = 0; i < processes.length; i++) {
+            processes[i] = measured(processes[i], false);
+        }
+        for (int i = 0; i < dispatchers.length; i++) {
+            dispatchers[i] = measured(dispatchers[i], true);
+        }
+        
+        Stage stage = new Stage(processes, dispatchers, context);
+        stage.stores = stores;
+        stage.recovered = recovered;
+        stage.exporter = exporter;
+        stage.logPath = logPath;
+        stage.producerDispatcherIn = producerDispatcherIn;
+        stage.producerDispatcherOut = producerDispatcherOut;
+        stage.producerPublished = producerPublished;
+        return stage;
+    }
+    
+    /**
+     * Zbudowany system (albo etap potoku): procesy i dispatchery do
+     * uruchomienia oraz to, czego potrzeba do zamknięcia po przebiegu i do
+     * podłączenia procesów poprzedniego etapu jako producentów.
+     */
+    final class Stage {
+        final CSProcess[] processes;
+        final CSProcess[] dispatchers;
+        private final ProcessContext context;
+        private MappedItemBuffer[] stores;
+        private long recovered;
+        private MetricsHttpExporter exporter;
+        private Path logPath;
+        private Any2OneChannel[] producerDispatcherIn;
+        private One2OneChannel[] producerDispatcherOut;
+        private PublishedWaitTimes[] producerPublished;
+        
+        private Stage(CSProcess[] processes, CSProcess[] dispatchers, ProcessContext context) {
+            this.processes = processes;
+            this.dispatchers = dispatchers;
+            this.context = context;
+        }
+        
+        /**
+         * Wejście etapu dla procesu poprzedniego etapu - producenta o id pid
+         * (id < numProducers, kanał odpowiedzi i polityka jak u producenta).
+         */
+        StageHandoff handoff(int pid) {
+            DispatcherLink link = new DispatcherLink(pid, 
+                producerDispatcherIn[pid % dispatcherShards], producerDispatcherOut[pid], 
+                producerPublished[pid % dispatcherShards], numBuffers, stats, true);
+            SplittableRandom rand = new SplittableRandom(pid * 1000 + System.nanoTime());
+            LocalityGroups locality = context.locality;
+            int group = (locality != null) ? locality.groupOfProcess(pid) : 0;
+            BufferSelectionPolicy policy = context.createPolicy(true, group, rand);
+            return new StageHandoff(pid, context.queues, policy, link, stats, context.phases, 
+                                    context.activeProducers);
+        }
+        
+        /** Zamknięcie po zakończeniu wszystkich procesów: bilans, okno kolejności, dziennik. */
+        void finish() {
+            PhaseController phases = context.phases;
+            LoadShift shift = context.shift;
+            PayloadArena arena = context.arena;
+            ReorderWindow window = context.window;
+            EventLog events = context.events;
             
-            processes[idx++] = () -> {
-                Random rand = new Random(cid * 2000 + System.nanoTime());
-                CSTimer timer = new CSTimer();
-                
-                double[] weights = new double[numBuffers + 1];
-                long[] waitTimes = new long[numBuffers + 1];
-                boolean[] bufferAlive = new boolean[numBuffers];
-                
-                for (int i = 0; i <= numBuffers; i++) {
-                    weights[i] = 1.0;
-                    waitTimes[i] = 0;
-                }
-                for (int i = 0; i < numBuffers; i++) {
-                    bufferAlive[i] = true;
+            // Procesy kończą się dopiero po STOPPED, więc sterownik ma już zapisane okno pomiaru
+            stats.recordShutdown(Math.max(0, (System.nanoTime() - phases.stopAtNanos()) / 1_000_000));
+            if (shift != null) {
+                stats.recordLoadShift(shift.convergedMillis(), shift.lastRatio());
+            }
+            
+            // Co zostało w buforach po drenowaniu - porzucone przy zamknięciu,
+            // a w trwałych buforach zostaje w segmentach dla następnego przebiegu
+            long leftover = 0;
+            if (stores != null) {
+                long persisted = 0;
+                for (MappedItemBuffer store : stores) {
+                    persisted += store.size();
+                    store.close();
                 }
-                
-                int deadBuffers = 0;
-                
-                while (deadBuffers < numBuffers && activeProducers.get() > 0) {
-                    int target = selectByWeightAlive(weights, rand, bufferAlive, numBuffers);
-                    
-                    if (target == numBuffers) {
-                        // === DISPATCHER ===
-                        try {
-                            long startTime = System.nanoTime();
-                            
-                            consumerDispatcherIn.out().write(
-                                new WeightTableRequest(cid, waitTimes.clone(), false));
-                            
-                            Alternative alt = new Alternative(new Guard[]{
-                                myDispatcherResponse.in(),
-                                timer
-                            });
-                            
-                            long timeout = timer.read() + 100;
-                            timer.setAlarm(timeout);
-                            
-                            int selected = alt.priSelect();
-                            if (selected == 0) {
-                                WeightTableResponse response = 
-                                    (WeightTableResponse) myDispatcherResponse.in().read();
-                                
-                                long elapsed = System.nanoTime() - startTime;
-                                waitTimes[numBuffers] = elapsed;
-                                
-                                updateWeightsFromResponse(weights, response.aggregatedWaitTimes);
-                                
-                                if (print) System.out.println("Consumer[" + cid + "]: Synced");
-                            }
-                        } catch (Exception e) {
-                            // Ignoruj
-                        }
-                        
-                    } else {
-                        // === BUFOR ===
-                        if (!bufferAlive[target]) continue;
-                        
-                        long startTime = System.nanoTime();
-                        
-                        try {
-                            Integer item = queues[target].poll(50, 
-                                java.util.concurrent.TimeUnit.MILLISECONDS);
-                            
-                            if (item != null) {
-                                long elapsed = System.nanoTime() - startTime;
-                                waitTimes[target] = elapsed;
-                                
-                                if (item == -1) {
-                                    bufferAlive[target] = false;
-                                    weights[target] = 0.0;
-                                    deadBuffers++;
-                                    
-                                    if (bufferStats != null) {
-                                        if (print) System.out.println("Consumer[" + cid + 
-                                            "]: Buffer[" + target + "] done, total: " + 
-                                            bufferStats[target].get());
-                                    }
-                                    
-                                    if (print) System.out.println("Consumer[" + cid + 
-                                        "]: POISON from Buffer[" + target + "]");
-                                } else {
-                                    totalConsumed.incrementAndGet();
-                                    if (bufferStats != null) {
-                                        bufferStats[target].incrementAndGet();
-                                    }
-                                    updateWeight(weights, target, elapsed);
-                                    
-                                    if (print) System.out.println("Consumer[" + cid + "]: " + 
-                                        item + " <- Buffer[" + target + "]");
-                                }
-                            } else {
-                                // Timeout - zmniejsz wagę
-                                weights[target] *= 0.95;
+                stats.recordStore(recovered, persisted);
+            } else {
+                int[] rest = new int[BUFFER_CAPACITY];
+                for (ItemBuffer queue : context.queues) {
+                    int n;
+                    while ((n = queue.drainTo(rest, 0, rest.length)) > 0) {
+                        leftover += n;
+                        if (arena != null) {
+                            for (int i = 0; i < n; i++) {
+                                arena.release(rest[i]);
                             }
-                        } catch (InterruptedException e) {
-                            break;
                         }
                     }
                 }
-                
-                activeConsumers.decrementAndGet();
-                
+            }
+            stats.recordLeftover(leftover);
+            DispatcherEvents.shutdown(leftover, stats.unplaced());
+            
+            if (window != null) {
+                // Wszyscy konsumenci skończyli - dostarcz resztę okna
+                window.flush(new ConsumerSink(0, stats, arena, null, null, BUFFER_CAPACITY));
+                stats.recordOrdering(window.delivered(), window.gaps());
+            }
+            
+            if (exporter != null) {
+                exporter.close();
+            }
+            
+            if (events != null) {
                 try {
-                    consumerDispatcherIn.out().write(new WeightTableRequest(cid, null, true));
-                } catch (Exception e) {
-                    // Ignoruj
+                    events.close();
+                    System.out.println("Dziennik zdarzeń: " + logPath + " (" + events.records() + 
+                        " rekordów, pominięto " + events.dropped() + ") - odczyt: java EventLogDecoder " + logPath);
+                } catch (IOException e) {
+                    System.err.println("Błąd zamykania dziennika zdarzeń: " + e.getMessage());
                 }
-                
-                if (print) System.out.println("Consumer[" + cid + "]: Finished");
-            };
+            }
         }
+    }
+    
+    /**
+     * Proces dispatchera (jeden shard) dla producentów albo konsumentów.
+     * Agreguje czasy oczekiwania z wygaszaniem (DecayingWaitTimes - średnia
+     * albo percentyl, wagi próbek maleją z wiekiem) i odpowiada na każde żądanie
+     * albo (tryb ASYNC) publikuje migawkę w published. Przy wielu shardach co
+     * SHARD_MERGE_INTERVAL_MS publikuje swoją tablicę i dolicza tablice
+     * pozostałych shardów do odpowiedzi. Odpowiedź jest wpisywana w miejscu
+     * do skrzynki procesu (WeightTableRequest.reply), a Alternative jest
+     * tworzony raz - pętla nie alokuje. Kończy się po
+     * zgłoszeniu zakończenia od każdego swojego procesu (procesy zgłaszają je
+     * w finally), więc nie musi okresowo sprawdzać, czy procesy jeszcze żyją.
+     * shift (tylko shard 0 konsumentów) dostaje każdą odpowiedź do pomiaru
+     * zbieżności po zmianie obciążenia.
+     */
+    private CSProcess createDispatcher(boolean producerSide, int shard, int numClients, 
+                                        Any2OneChannel in, One2OneChannel[] out, 
+                                        PublishedWaitTimes published, ShardedWaitTimes shards,
+                                        EventLog events, LoadShift shift) {
+        final int side = producerSide ? EventLog.PRODUCER_SIDE : 0;
+        // Procesy o id % dispatcherShards == shard
+        final int ownedClients = (numClients - shard + dispatcherShards - 1) / dispatcherShards;
+        final boolean sharded = dispatcherShards > 1;
         
-        // --- DISPATCHER PRODUCENTÓW ---
-        processes[idx++] = () -> {
+        return () -> {
+            EventLog.Writer log = (events != null) ? events.writer() : null;
+            DecayingWaitTimes aggregated = new DecayingWaitTimes(numBuffers + 1, 
+                TimeUnit.MILLISECONDS.toNanos(decayMillis), aggregatePercentile, System.nanoTime());
             long[] aggregatedWaitTimes = new long[numBuffers + 1];
-            int[] counts = new int[numBuffers + 1];
+            double[] weights = new double[numBuffers + 1];
+            double[] othersWeightedSum = new double[numBuffers + 1];
+            double[] othersWeights = new double[numBuffers + 1];
+            
+            long[] snapshot = new long[numBuffers + 1]; // ASYNC - tablica do publikacji
             
             int terminationCount = 0;
+            int unpublished = 0;
             CSTimer timer = new CSTimer();
+            long nextMerge = timer.read() + SHARD_MERGE_INTERVAL_MS;
+            long nextMetrics = System.nanoTime();
+            // Końce kanałów raz - in()/out() w JCSP tworzą nowy obiekt przy każdym wywołaniu
+            AltingChannelInput requests = in.in();
+            ChannelOutput[] replies = new ChannelOutput[out.length];
+            for (int i = 0; i < out.length; i++) {
+                if (out[i] != null) replies[i] = out[i].out();
+            }
+            // Alarm tylko na termin scalenia z pozostałymi shardami
+            Alternative alt = sharded ? new Alternative(new Guard[]{ requests, timer }) : null;
             
-            while (terminationCount < numProducers) {
-                Alternative alt = new Alternative(new Guard[]{
-                    producerDispatcherIn.in(),
-                    timer
-                });
-                
-                long timeout = timer.read() + 1000; // 1s timeout
-                timer.setAlarm(timeout);
-                
-                int selected = alt.priSelect();
-                if (selected == 1) {
-                    // Timeout - sprawdź czy wszyscy producenci skończyli
-                    if (activeProducers.get() == 0) break;
-                    continue;
+            while (terminationCount < ownedClients) {
+                if (sharded) {
+                    timer.setAlarm(nextMerge);
+                    
+                    if (alt.priSelect() == 1) {
+                        publishShard(shards, shard, aggregated, aggregatedWaitTimes, weights);
+                        shards.collectOthers(shard, othersWeightedSum, othersWeights);
+                        nextMerge = timer.read() + SHARD_MERGE_INTERVAL_MS;
+                        continue;
+                    }
                 }
                 
-                WeightTableRequest request = 
-                    (WeightTableRequest) producerDispatcherIn.in().read();
+                WeightTableRequest request = (WeightTableRequest) requests.read();
                 
                 if (request.isTermination) {
                     terminationCount++;
-                    if (print) System.out.println("ProducerDispatcher: Term " + 
-                        request.processId + " (" + terminationCount + "/" + numProducers + ")");
+                    if (log != null) log.log(EventLog.DISPATCHER_TERM | side, shard, request.processId,
+                        ((long) terminationCount << 32) | ownedClients);
                     continue;
                 }
                 
+                long now = System.nanoTime();
                 if (request.waitTimes != null) {
-                    for (int i = 0; i < request.waitTimes.length && i < numBuffers + 1; i++) {
-                        if (request.waitTimes[i] > 0) {
-                            aggregatedWaitTimes[i] = 
-                                (aggregatedWaitTimes[i] * counts[i] + request.waitTimes[i]) 
-                                / (counts[i] + 1);
-                            counts[i]++;
-                        }
-                    }
+                    aggregated.record(request.waitTimes, now);
                 }
+                // Skrzynka przeczytana - proces może ją nadpisać (ASYNC)
+                request.pending = false;
                 
-                try {
-                    producerDispatcherOut[request.processId].out().write(
-                        new WeightTableResponse(aggregatedWaitTimes.clone()));
-                } catch (Exception e) {
-                    // Ignoruj
+                // Przy ciągłym ruchu alarm nie zostanie wybrany - scal po żądaniu
+                if (sharded && timer.read() >= nextMerge) {
+                    publishShard(shards, shard, aggregated, aggregatedWaitTimes, weights);
+                    shards.collectOthers(shard, othersWeightedSum, othersWeights);
+                    nextMerge = timer.read() + SHARD_MERGE_INTERVAL_MS;
                 }
                 
-                if (print) System.out.println("ProducerDispatcher: Synced Producer[" + 
-                    request.processId + "]");
-            }
-            
-            if (print) System.out.println("ProducerDispatcher: Done");
-        };
-        
-        // --- DISPATCHER KONSUMENTÓW ---
-        processes[idx++] = () -> {
-            long[] aggregatedWaitTimes = new long[numBuffers + 1];
-            int[] counts = new int[numBuffers + 1];
-            
-            int terminationCount = 0;
-            CSTimer timer = new CSTimer();
-            
-            while (terminationCount < numConsumers) {
-                Alternative alt = new Alternative(new Guard[]{
-                    consumerDispatcherIn.in(),
-                    timer
-                });
-                
-                long timeout = timer.read() + 1000;
-                timer.setAlarm(timeout);
-                
-                int selected = alt.priSelect();
-                if (selected == 1) {
-                    // Timeout
-                    if (activeConsumers.get() == 0) break;
-                    continue;
+                if (published != null) {
+                    // Publikuj gdy kolejka opróżniona albo co ASYNC_PUBLISH_EVERY żądań
+                    unpublished++;
+                    if (unpublished < ASYNC_PUBLISH_EVERY && requests.pending()) continue;
+                    unpublished = 0;
                 }
                 
-                WeightTableRequest request = 
-                    (WeightTableRequest) consumerDispatcherIn.in().read();
+                long[] response = (published != null) ? snapshot : request.reply.aggregatedWaitTimes;
+                if (sharded) {
+                    aggregated.values(aggregatedWaitTimes);
+                    aggregated.weights(weights, now);
+                    ShardedWaitTimes.merge(aggregatedWaitTimes, weights, 
+                                           othersWeightedSum, othersWeights, response);
+                } else {
+                    aggregated.values(response);
+                }
+                if (shift != null) shift.observe(response, now);
                 
-                if (request.isTermination) {
-                    terminationCount++;
-                    if (print) System.out.println("ConsumerDispatcher: Term " + 
-                        request.processId + " (" + terminationCount + "/" + numConsumers + ")");
-                    continue;
+                // Podgląd dostaje własną kopię, ale nie częściej niż co 100 ms
+                if (now - nextMetrics >= 0) {
+                    metrics.publishWaitTimes(producerSide, response.clone());
+                    nextMetrics = now + METRICS_PUBLISH_INTERVAL_NANOS;
                 }
                 
-                if (request.waitTimes != null) {
-                    for (int i = 0; i < request.waitTimes.length && i < numBuffers + 1; i++) {
-                        if (request.waitTimes[i] > 0) {
-                            aggregatedWaitTimes[i] = 
-                                (aggregatedWaitTimes[i] * counts[i] + request.waitTimes[i]) 
-                                / (counts[i] + 1);
-                            counts[i]++;
-                        }
-                    }
+                if (published != null) {
+                    published.publish(response);
+                    if (log != null) log.log(EventLog.DISPATCHER_PUBLISHED | side, shard, 0, 0);
+                    continue;
                 }
                 
                 try {
-                    consumerDispatcherOut[request.processId].out().write(
-                        new WeightTableResponse(aggregatedWaitTimes.clone()));
+                    replies[request.processId].write(request.reply);
                 } catch (Exception e) {
                     // Ignoruj
                 }
                 
-                if (print) System.out.println("ConsumerDispatcher: Synced Consumer[" + 
-                    request.processId + "]");
+                if (log != null) log.log(EventLog.DISPATCHER_SYNCED | side, shard, request.processId, 0);
             }
             
-            if (print) System.out.println("ConsumerDispatcher: Done");
+            if (log != null) log.log(EventLog.DISPATCHER_DONE | side, shard, 0, 0);
         };
-        
-        new Parallel(processes).run();
-        
-        stopFlag.set(true);
     }
     
     // === METODY POMOCNICZE ===
     
-    private static int selectByWeight(double[] weights, Random rand) {
-        double total = 0;
-        for (double w : weights) total += w;
-        
-        if (total <= 0) return 0;
-        
-        double r = rand.nextDouble() * total;
-        double cumulative = 0;
-        
-        for (int i = 0; i < weights.length; i++) {
-            cumulative += weights[i];
-            if (r <= cumulative) {
-                return i;
-            }
-        }
-        return weights.length - 1;
+    /** Wystawia tablicę sharda z wagami slotów z bieżącej chwili. */
+    private static void publishShard(ShardedWaitTimes shards, int shard, DecayingWaitTimes aggregated,
+                                     long[] values, double[] weights) {
+        aggregated.values(values);
+        aggregated.weights(weights, System.nanoTime());
+        shards.publish(shard, values, weights);
     }
     
-    private static int selectByWeightAlive(double[] weights, Random rand, 
-                                            boolean[] alive, int numBuffers) {
-        double total = 0;
-        
-        for (int i = 0; i < numBuffers; i++) {
-            if (alive[i]) total += weights[i];
-        }
-        total += weights[numBuffers];
-        
-        if (total <= 0) return numBuffers;
-        
-        double r = rand.nextDouble() * total;
-        double cumulative = 0;
-        
-        for (int i = 0; i < numBuffers; i++) {
-            if (alive[i]) {
-                cumulative += weights[i];
-                if (r <= cumulative) return i;
-            }
-        }
-        
-        return numBuffers;
-    }
-    
-    private static void updateWeight(double[] weights, int index, long waitTimeNanos) {
-        double newWeight = 1.0 / (1.0 + waitTimeNanos / 1_000_000.0);
-        weights[index] = 0.7 * weights[index] + 0.3 * newWeight;
-        if (weights[index] < 0.01) weights[index] = 0.01;
-    }
-    
-    private static void updateWeightsFromResponse(double[] weights, long[] aggregatedWaitTimes) {
-        for (int i = 0; i < weights.length && i < aggregatedWaitTimes.length; i++) {
-            if (aggregatedWaitTimes[i] > 0) {
-                double newWeight = 1.0 / (1.0 + aggregatedWaitTimes[i] / 1_000_000.0);
-                weights[i] = 0.5 * weights[i] + 0.5 * newWeight;
+    /** Proces, który po zakończeniu dolicza do statystyk bajty zaalokowane przez swój wątek. */
+    private CSProcess measured(CSProcess body, boolean dispatcher) {
+        return () -> {
+            long start = AllocationProbe.threadAllocatedBytes();
+            try {
+                body.run();
+            } finally {
+                long end = AllocationProbe.threadAllocatedBytes();
+                stats.addAllocated(dispatcher, (start >= 0 && end >= 0) ? end - start : -1);
             }
-        }
-        
-        double sum = 0;
-        for (double w : weights) sum += w;
-        if (sum > 0) {
-            for (int i = 0; i < weights.length; i++) {
-                weights[i] = weights[i] / sum * weights.length;
-            }
-        }
-    }
-}
-
-// === KLASY WIADOMOŚCI ===
-
-class WeightTableRequest {
-    final int processId;
-    final long[] waitTimes;
-    final boolean isTermination;
-    
-    WeightTableRequest(int processId, long[] waitTimes, boolean isTermination) {
-        this.processId = processId;
-        this.waitTimes = waitTimes;
-        this.isTermination = isTermination;
+        };
     }
 }
-
-class WeightTableResponse {
-    final long[] aggregatedWaitTimes;
-    
-    WeightTableResponse(long[] aggregatedWaitTimes) {
-        this.aggregatedWaitTimes = aggregatedWaitTimes;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,395 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Klasa pomocnicza do przechowywania konfiguracji testu
+class TestConfig implements Cloneable {
+    final int numProducers;
+    final int numBuffers;
+    final int numConsumers;
+    final int durationSeconds;
+    
+    // Opcje podawane po "P B K t" w postaci klucz=wartość
+    BufferBackend backend = BufferBackend.QUEUE;
+    String store = TablicaDispatcher.DEFAULT_STORE_DIR;
+    int batchSize = 1;
+    int dispatcherShards = 1;
+    SyncMode syncMode = SyncMode.CHANNEL;
+    ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    ConsumerStrategy consumerStrategy = ConsumerStrategy.WEIGHTED;
+    boolean spillOnFull = false;
+    SelectionPolicy selectionPolicy = SelectionPolicy.WEIGHTED;
+    int payloadSize = 0;
+    int orderWindow = 0;
+    long warmupMillis = 0;
+    long cooldownMillis = 0;
+    int metricsPort = -1;
+    String eventLog = null;
+    int localityGroups = 1;
+    double remoteShare = 0.1;
+    boolean pinThreads = false;
+    long decayMillis = TablicaDispatcher.DEFAULT_DECAY_MILLIS;
+    double aggregatePercentile = 0;
+    long shiftMillis = 0;
+    long shiftDelayMicros = TablicaDispatcher.DEFAULT_SHIFT_DELAY_MICROS;
+    PolicySettings policySettings = new PolicySettings();
+    Workload workload = new Workload();
+    boolean latencyHistograms = false;
+    
+    TestConfig(int numProducers, int numBuffers, int numConsumers, int durationSeconds) {
+        this.numProducers = numProducers;
+        this.numBuffers = numBuffers;
+        this.numConsumers = numConsumers;
+        this.durationSeconds = durationSeconds;
+    }
+    
+    /**
+     * Kopia konfiguracji z inną polityką wyboru bufora. Parametry polityk
+     * i model obciążenia są kopiowane - zmiana w jednym wariancie zestawu
+     * nie może przeciec do pozostałych.
+     */
+    TestConfig withPolicy(SelectionPolicy policy) {
+        try {
+            TestConfig copy = (TestConfig) clone();
+            copy.selectionPolicy = policy;
+            copy.policySettings = policySettings.copy();
+            copy.workload = workload.copy();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+    
+    /**
+     * Wczytuje konfiguracje z pliku w formacie "P B K t [klucz=wartość ...]".
+     * Puste linie i komentarze (#) są pomijane, błędne linie zgłaszane na stderr.
+     */
+    static List<TestConfig> readFile(String path) throws IOException {
+        List<TestConfig> configs = new ArrayList<>();
+        
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNumber = 0;
+            
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                
+                // Pomiń puste linie i komentarze
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                
+                if (line.split("\\s+").length < 4) {
+                    System.err.println("Ostrzeżenie: Linia " + lineNumber + 
+                        " - nieprawidłowy format (oczekiwano: P B K t [opcje])");
+                    continue;
+                }
+                
+                try {
+                    configs.add(parse(line));
+                } catch (NumberFormatException e) {
+                    System.err.println("Ostrzeżenie: Linia " + lineNumber + 
+                        " - nieprawidłowe liczby");
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Ostrzeżenie: Linia " + lineNumber + 
+                        " - " + e.getMessage());
+                }
+            }
+        }
+        
+        return configs;
+    }
+    
+    /** Konfiguracja z linii "P B K t [klucz=wartość ...]". */
+    static TestConfig parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("oczekiwano: P B K t [opcje]: " + line);
+        }
+        TestConfig cfg = new TestConfig(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                                        Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        for (int i = 4; i < parts.length; i++) {
+            cfg.applyOption(parts[i]);
+        }
+        cfg.validate();
+        return cfg;
+    }
+    
+    /**
+     * Sprawdza opcje, które wykluczają się nawzajem - po zastosowaniu
+     * wszystkich, bo kolejność podania opcji jest dowolna.
+     */
+    void validate() {
+        if (backend == BufferBackend.MAPPED && (payloadSize > 0 || orderWindow > 0)) {
+            // Segmenty trzymają numery elementów - sloty ładunku i okno kolejności nie przeżyją restartu
+            throw new IllegalArgumentException("backend=mapped nie obsługuje payload i order");
+        }
+        if (pinThreads && executionMode != ExecutionMode.PLATFORM) {
+            // Wątek wirtualny nie należy do procesu - nie ma czego przypiąć
+            throw new IllegalArgumentException("pin=on tylko z exec=platform");
+        }
+    }
+    
+    void applyOption(String option) {
+        int eq = option.indexOf('=');
+        if (eq <= 0) {
+            throw new IllegalArgumentException("oczekiwano klucz=wartość: " + option);
+        }
+        String key = option.substring(0, eq).toLowerCase();
+        String value = option.substring(eq + 1);
+        
+        switch (key) {
+            case "backend":
+                backend = BufferBackend.parse(value);
+                break;
+            case "store":
+                // Katalog segmentów dla backend=mapped
+                if (value.isEmpty()) {
+                    throw new IllegalArgumentException("store wymaga katalogu");
+                }
+                store = value;
+                break;
+            case "batch":
+                batchSize = Integer.parseInt(value);
+                if (batchSize < 1) {
+                    throw new IllegalArgumentException("batch musi być >= 1: " + value);
+                }
+                break;
+            case "shards":
+                dispatcherShards = Integer.parseInt(value);
+                if (dispatcherShards < 1) {
+                    throw new IllegalArgumentException("shards musi być >= 1: " + value);
+                }
+                break;
+            case "sync":
+                syncMode = SyncMode.parse(value);
+                break;
+            case "exec":
+                executionMode = ExecutionMode.parse(value);
+                break;
+            case "latency":
+                latencyHistograms = parseSwitch(key, value);
+                break;
+            case "consume":
+                consumerStrategy = ConsumerStrategy.parse(value);
+                break;
+            case "spill":
+                spillOnFull = parseSwitch(key, value);
+                break;
+            case "policy":
+                selectionPolicy = SelectionPolicy.parse(value);
+                break;
+            case "ewma":
+                policySettings.setEwmaAlpha(Double.parseDouble(value));
+                break;
+            case "sync-blend":
+                policySettings.setSyncBlend(Double.parseDouble(value));
+                break;
+            case "put-penalty":
+                policySettings.setPutPenalty(Double.parseDouble(value));
+                break;
+            case "take-penalty":
+                policySettings.setTakePenalty(Double.parseDouble(value));
+                break;
+            case "ucb-c":
+                policySettings.setUcbExploration(Double.parseDouble(value));
+                break;
+            case "payload":
+                payloadSize = Integer.parseInt(value);
+                if (payloadSize != 0 && payloadSize < 8) {
+                    throw new IllegalArgumentException("payload musi być 0 albo >= 8: " + value);
+                }
+                break;
+            case "order":
+                // on = domyślne okno, liczba = rozmiar okna
+                if (value.equalsIgnoreCase("on")) {
+                    orderWindow = TablicaDispatcher.DEFAULT_ORDER_WINDOW;
+                } else if (value.equalsIgnoreCase("off")) {
+                    orderWindow = 0;
+                } else {
+                    orderWindow = Integer.parseInt(value);
+                    if (orderWindow < 0) {
+                        throw new IllegalArgumentException("order przyjmuje on/off albo rozmiar okna: " + value);
+                    }
+                }
+                break;
+            case "warmup-ms":
+                warmupMillis = Long.parseLong(value);
+                if (warmupMillis < 0) {
+                    throw new IllegalArgumentException("warmup-ms musi być >= 0: " + value);
+                }
+                break;
+            case "cooldown-ms":
+                cooldownMillis = Long.parseLong(value);
+                if (cooldownMillis < 0) {
+                    throw new IllegalArgumentException("cooldown-ms musi być >= 0: " + value);
+                }
+                break;
+            case "metrics":
+                // Port serwera /metrics, off = wyłączony
+                metricsPort = value.equalsIgnoreCase("off") ? -1 : Integer.parseInt(value);
+                if (metricsPort < -1 || metricsPort > 65535) {
+                    throw new IllegalArgumentException("metrics przyjmuje off albo port 0-65535: " + value);
+                }
+                break;
+            case "groups":
+                localityGroups = Integer.parseInt(value);
+                if (localityGroups < 1) {
+                    throw new IllegalArgumentException("groups musi być >= 1: " + value);
+                }
+                break;
+            case "remote":
+                // Udział wyborów bufora spoza grupy lokalności
+                remoteShare = Double.parseDouble(value);
+                if (!(remoteShare >= 0 && remoteShare <= 1)) {
+                    throw new IllegalArgumentException("remote musi być w [0, 1]: " + value);
+                }
+                break;
+            case "pin":
+                pinThreads = parseSwitch(key, value);
+                break;
+            case "log":
+                // Plik dziennika zdarzeń (EventLog), off = tylko przy print, do pliku domyślnego
+                eventLog = value.equalsIgnoreCase("off") ? null : value;
+                break;
+            case "decay-ms":
+                // Okres połowiczny agregacji w dispatcherze, 0 = średnia z całego przebiegu
+                decayMillis = Long.parseLong(value);
+                if (decayMillis < 0) {
+                    throw new IllegalArgumentException("decay-ms musi być >= 0: " + value);
+                }
+                break;
+            case "agg":
+                // Statystyka tablicy wag: mean albo percentyl, np. p90
+                aggregatePercentile = parseStatistic(value);
+                break;
+            case "shift-ms":
+                // Po ilu ms od startu pojawia się wolna grupa konsumentów, 0 = nigdy
+                shiftMillis = Long.parseLong(value);
+                if (shiftMillis < 0) {
+                    throw new IllegalArgumentException("shift-ms musi być >= 0: " + value);
+                }
+                break;
+            case "shift-us":
+                shiftDelayMicros = Long.parseLong(value);
+                if (shiftDelayMicros < 0) {
+                    throw new IllegalArgumentException("shift-us musi być >= 0: " + value);
+                }
+                break;
+            case "service":
+                // Czas obsługi elementu u konsumenta: const:US, exp:US, bimodal:US1:US2:P, stall:US:CO_MS:NA_MS
+                workload.setConsumerService(value);
+                break;
+            case "producer-service":
+                workload.setProducerService(value);
+                break;
+            case "work":
+                workload.setWorkUnits(Integer.parseInt(value));
+                break;
+            case "slow":
+                workload.setSlowConsumers(value);
+                break;
+            case "slow-buffers":
+                workload.setSlowBuffers(value);
+                break;
+            default:
+                throw new IllegalArgumentException("nieznana opcja: " + key);
+        }
+    }
+    
+    private static double parseStatistic(String value) {
+        if (value.equalsIgnoreCase("mean")) return 0;
+        if (value.length() > 1 && (value.charAt(0) == 'p' || value.charAt(0) == 'P')) {
+            double percentile = Double.parseDouble(value.substring(1));
+            if (percentile > 0 && percentile <= 100) return percentile;
+        }
+        throw new IllegalArgumentException("agg przyjmuje mean albo pNN, np. p90: " + value);
+    }
+    
+    private static String statisticName(double percentile) {
+        return (percentile > 0) ? "p" + DecayingWaitTimes.formatPercentile(percentile) : "mean";
+    }
+    
+    private static boolean parseSwitch(String key, String value) {
+        if (value.equalsIgnoreCase("on")) return true;
+        if (value.equalsIgnoreCase("off")) return false;
+        throw new IllegalArgumentException(key + " przyjmuje on/off: " + value);
+    }
+    
+    void applyTo(TablicaDispatcher system) {
+        system.setBufferBackend(backend);
+        system.setStore(Paths.get(store));
+        system.setBatchSize(batchSize);
+        system.setDispatcherShards(dispatcherShards);
+        system.setSyncMode(syncMode);
+        system.setExecutionMode(executionMode);
+        system.setConsumerStrategy(consumerStrategy);
+        system.setSpillOnFull(spillOnFull);
+        system.setSelectionPolicy(selectionPolicy, policySettings);
+        system.setPayloadSize(payloadSize);
+        system.setOrderWindow(orderWindow);
+        system.setPhases(warmupMillis, cooldownMillis);
+        system.setMetricsPort(metricsPort);
+        system.setLocality(localityGroups, remoteShare, pinThreads);
+        system.setEventLog(eventLog != null ? Paths.get(eventLog) : null);
+        system.setAggregation(decayMillis, aggregatePercentile);
+        system.setLoadShift(shiftMillis, shiftDelayMicros);
+        system.setWorkload(workload);
+    }
+    
+    String describeOptions() {
+        return "backend=" + backend.name().toLowerCase() 
+            + (backend == BufferBackend.MAPPED ? " store=" + store : "")
+            + " batch=" + batchSize 
+            + " shards=" + dispatcherShards + " sync=" + syncMode.name().toLowerCase() 
+            + " exec=" + executionMode.name().toLowerCase()
+            + (consumerStrategy != ConsumerStrategy.WEIGHTED 
+                ? " consume=" + consumerStrategy.name().toLowerCase() : "")
+            + (spillOnFull ? " spill=on" : "")
+            + (selectionPolicy != SelectionPolicy.WEIGHTED ? " policy=" + selectionPolicy.optionName() : "")
+            + policySettings.describe()
+            + workload.describe()
+            + (payloadSize > 0 ? " payload=" + payloadSize : "")
+            + (orderWindow > 0 ? " order=" + orderWindow : "")
+            + (warmupMillis > 0 ? " warmup-ms=" + warmupMillis : "")
+            + (cooldownMillis > 0 ? " cooldown-ms=" + cooldownMillis : "")
+            + (metricsPort >= 0 ? " metrics=" + metricsPort : "")
+            + (localityGroups > 1 ? " groups=" + localityGroups + " remote=" + remoteShare : "")
+            + (pinThreads ? " pin=on" : "")
+            + (eventLog != null ? " log=" + eventLog : "")
+            + (decayMillis != TablicaDispatcher.DEFAULT_DECAY_MILLIS ? " decay-ms=" + decayMillis : "")
+            + (aggregatePercentile > 0 ? " agg=" + statisticName(aggregatePercentile) : "")
+            + (shiftMillis > 0 ? " shift-ms=" + shiftMillis + " shift-us=" + shiftDelayMicros : "")
+            + (latencyHistograms ? " latency=on" : "");
+    }
+    
+    /** Nagłówek kolumn opcji w danych CSV (zgodny z csvOptions()). */
+    static String csvOptionsHeader() {
+        return "backend,paczka,shardy,sync,wykonanie,konsument,przelewanie,polityka,ladunek_b,okno_kolejnosci,rozgrzewka_ms,wygaszanie_ms,grupy,obce,przypiecie,polowa_agregacji_ms,agregacja,zmiana_ms,zmiana_us,model_obciazenia,magazyn";
+    }
+    
+    String csvOptions() {
+        return backend.name().toLowerCase() + "," + batchSize + "," + dispatcherShards + "," 
+            + syncMode.name().toLowerCase() + "," + executionMode.name().toLowerCase() + ","
+            + consumerStrategy.name().toLowerCase() + "," + (spillOnFull ? "on" : "off") + ","
+            + selectionPolicy.optionName() + "," + payloadSize + "," + orderWindow + ","
+            + warmupMillis + "," + cooldownMillis + "," + localityGroups + "," + remoteShare + ","
+            + (pinThreads ? "on" : "off") + "," + decayMillis + "," + statisticName(aggregatePercentile) + ","
+            + shiftMillis + "," + shiftDelayMicros + ","
+            + csvField(workload.isActive() ? workload.describe().trim() : "-") + ","
+            + csvField(backend == BufferBackend.MAPPED ? store : "-");
+    }
+    
+    /** Pole CSV (RFC 4180) - w cudzysłowach, gdy zawiera przecinek, cudzysłów albo koniec linii. */
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,6 +1,5 @@
 import java.util.Scanner;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -26,43 +25,7 @@ public class TestTablicaDispatcher {
             String inputFile = scanner.next();
             
             try {
-                BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-                String line;
-                int lineNumber = 0;
-                
-                while ((line = reader.readLine()) != null) {
-                    lineNumber++;
-                    line = line.trim();
-                    
-                    // Pomiń puste linie i komentarze
-                    if (line.isEmpty() || line.startsWith("#")) {
-                        continue;
-                    }
-                    
-                    String[] parts = line.split("\\s+");
-                    
-                    if (parts.length < 4) {
-                        System.err.println("Ostrzeżenie: Linia " + lineNumber + 
-                            " - nieprawidłowy format (oczekiwano: P B K t)");
-                        continue;
-                    }
-                    
-                    try {
-                        int p = Integer.parseInt(parts[0]);
-                        int b = Integer.parseInt(parts[1]);
-                        int k = Integer.parseInt(parts[2]);
-                        int t = Integer.parseInt(parts[3]);
-                        
-                        configs.add(new TestConfig(p, b, k, t));
-                        
-                    } catch (NumberFormatException e) {
-                        System.err.println("Ostrzeżenie: Linia " + lineNumber + 
-                            " - nieprawidłowe liczby");
-                        continue;
-                    }
-                }
-                
-                reader.close();
+                configs.addAll(TestConfig.readFile(inputFile));
                 
                 if (configs.isEmpty()) {
                     System.err.println("Błąd: Brak poprawnych konfiguracji w pliku");
@@ -75,7 +38,7 @@ public class TestTablicaDispatcher {
                     TestConfig cfg = configs.get(i);
                     System.out.println("  " + (i+1) + ". P=" + cfg.numProducers + 
                         " B=" + cfg.numBuffers + " K=" + cfg.numConsumers + 
-                        " t=" + cfg.durationSeconds);
+                        " t=" + cfg.durationSeconds + " " + cfg.describeOptions());
                 }
                 
             } catch (FileNotFoundException e) {
@@ -88,7 +51,7 @@ public class TestTablicaDispatcher {
                 return;
             }
             
-            System.out.print("\nWyświetlać logi? (t/n): ");
+            System.out.print("\nZapisywać logi do dziennika zdarzeń? (t/n): ");
             String printChoice = scanner.next();
             print = printChoice.equalsIgnoreCase("t");
             
@@ -119,9 +82,28 @@ public class TestTablicaDispatcher {
             System.out.print("Podaj czas wykonywania w sekundach: ");
             int durationSeconds = scanner.nextInt();
             
-            configs.add(new TestConfig(numProducers, numBuffers, numConsumers, durationSeconds));
+            TestConfig cfg = new TestConfig(numProducers, numBuffers, numConsumers, durationSeconds);
             
-            System.out.print("Wyświetlać logi? (t/n): ");
+            System.out.print("Opcje (np. backend=ring batch=16 shards=4 sync=async consume=stealing spill=on policy=ucb payload=256 order=on warmup-ms=500 groups=2 decay-ms=500 shift-ms=3000 latency=on), Enter = domyślne: ");
+            scanner.nextLine();
+            String optionLine = scanner.nextLine().trim();
+            if (!optionLine.isEmpty()) {
+                for (String option : optionLine.split("\\s+")) {
+                    try {
+                        cfg.applyOption(option);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Ostrzeżenie: " + e.getMessage() + " - pominięto");
+                    }
+                }
+            }
+            try {
+                cfg.validate();
+                configs.add(cfg);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Błąd: " + e.getMessage() + " - konfiguracja pominięta");
+            }
+            
+            System.out.print("Zapisywać logi do dziennika zdarzeń? (t/n): ");
             String printChoice = scanner.next();
             print = printChoice.equalsIgnoreCase("t");
             
@@ -137,6 +119,7 @@ public class TestTablicaDispatcher {
         
         // Wykonaj testy dla wszystkich konfiguracji
         List<String> allResults = new ArrayList<>();
+        List<RunResult> runResults = new ArrayList<>();
         
         for (int configIdx = 0; configIdx < configs.size(); configIdx++) {
             TestConfig config = configs.get(configIdx);
@@ -153,25 +136,25 @@ public class TestTablicaDispatcher {
                 config.numProducers, config.numBuffers, config.numConsumers);
             System.out.printf("║  Czas wykonywania: %d sekund                                      ║%n", 
                 config.durationSeconds);
+            System.out.printf("║  Opcje: %-57s║%n", config.describeOptions());
             System.out.println("╚══════════════════════════════════════════════════════════════════╝\n");
             
-            // Statystyki buforów
-            AtomicInteger[] bufferStats = new AtomicInteger[config.numBuffers];
-            for (int i = 0; i < config.numBuffers; i++) {
-                bufferStats[i] = new AtomicInteger(0);
+            // Liczniki (osobne komórki dla każdego procesu) i statystyki buforów
+            RunStatistics stats = new RunStatistics(
+                config.numProducers, config.numBuffers, config.numConsumers);
+            if (config.latencyHistograms) {
+                stats.enableLatencyHistograms();
             }
             
-            // Flaga zakończenia i liczniki
+            // Flaga zakończenia
             AtomicBoolean stopFlag = new AtomicBoolean(false);
-            AtomicInteger totalProduced = new AtomicInteger(0);
-            AtomicInteger totalConsumed = new AtomicInteger(0);
             
             // Wątek pokazujący pozostały czas
             Thread progressThread = new Thread(() -> {
                 for (int i = config.durationSeconds; i > 0; i--) {
                     if (stopFlag.get()) break;
                     System.out.println(">>> Pozostało: " + i + " sekund | Wyprodukowano: " + 
-                        totalProduced.get() + " | Skonsumowano: " + totalConsumed.get() + " <<<");
+                        stats.produced() + " | Skonsumowano: " + stats.consumed() + " <<<");
                     try {
                         Thread.sleep(1000);
                     } catch (InterruptedException e) {
@@ -187,8 +170,8 @@ public class TestTablicaDispatcher {
             // Uruchom system
             TablicaDispatcher system = new TablicaDispatcher(
                 config.numProducers, config.numBuffers, config.numConsumers, 
-                config.durationSeconds, print, bufferStats, 
-                stopFlag, totalProduced, totalConsumed);
+                config.durationSeconds, print, stats, stopFlag);
+            config.applyTo(system);
             system.run();
             
             long elapsed = (System.nanoTime() - startTime) / 1_000_000;
@@ -198,13 +181,12 @@ public class TestTablicaDispatcher {
             progressThread.interrupt();
             
             // Wyniki
-            String results = generateResults(elapsed, totalProduced.get(), totalConsumed.get(), 
-                                              bufferStats, config.numBuffers, config.numProducers, 
-                                              config.numConsumers, config.durationSeconds, 
-                                              configIdx + 1, configs.size());
+            RunResult result = new RunResult(config, elapsed, stats);
+            String results = generateResults(result, configIdx + 1, configs.size());
             
             System.out.println(results);
             allResults.add(results);
+            runResults.add(result);
             
             // Krótka przerwa między testami
             if (configIdx < configs.size() - 1) {
@@ -236,18 +218,10 @@ public class TestTablicaDispatcher {
                     
                     // Podsumowanie CSV
                     writer.write("\n=== ZBIORCZE DANE CSV ===\n");
-                    writer.write("Test,P,B,K,t,czas_ms,wyprodukowano,skonsumowano,przepustowosc,srednia,odchylenie,wsp_zmiennosci\n");
+                    writer.write("Test," + RunResult.csvHeader() + "\n");
                     
-                    for (int i = 0; i < configs.size(); i++) {
-                        // Wyciągnij dane CSV z każdego wyniku
-                        String result = allResults.get(i);
-                        String[] lines = result.split("\n");
-                        for (String line : lines) {
-                            if (line.matches("^\\d+,\\d+,\\d+,\\d+,.*")) {
-                                writer.write((i+1) + "," + line + "\n");
-                                break;
-                            }
-                        }
+                    for (int i = 0; i < runResults.size(); i++) {
+                        writer.write((i+1) + "," + runResults.get(i).csvRow() + "\n");
                     }
                     
                     writer.close();
@@ -283,10 +257,19 @@ public class TestTablicaDispatcher {
         }
     }
     
-    private static String generateResults(long elapsed, int produced, int consumed, 
-                                           AtomicInteger[] bufferStats, int numBuffers,
-                                           int numProducers, int numConsumers, 
-                                           int durationSeconds, int testNumber, int totalTests) {
+    private static String generateResults(RunResult result, int testNumber, int totalTests) {
+        RunStatistics.Snapshot stats = result.stats;
+        RunStatistics.Snapshot totals = result.totals;
+        TestConfig config = result.config;
+        long elapsed = result.elapsedMs;
+        long produced = stats.produced;
+        long consumed = stats.consumed;
+        long[] bufferStats = stats.perBuffer;
+        int numBuffers = config.numBuffers;
+        int numProducers = config.numProducers;
+        int numConsumers = config.numConsumers;
+        int durationSeconds = config.durationSeconds;
+        
         StringBuilder sb = new StringBuilder();
         
         sb.append("\n╔══════════════════════════════════════════════════════════════════╗\n");
@@ -302,13 +285,86 @@ public class TestTablicaDispatcher {
             numProducers, numBuffers, numConsumers));
         sb.append(String.format("║    Czas wykonywania: %d sekund                                    ║%n", 
             durationSeconds));
+        sb.append(String.format("║    Opcje: %-55s║%n", config.describeOptions()));
         sb.append("╠══════════════════════════════════════════════════════════════════╣\n");
-        sb.append(String.format("║  Rzeczywisty czas wykonania: %-6d ms                           ║%n", elapsed));
+        sb.append(String.format("║  Rzeczywisty czas wykonania: %-6d ms (start %d ms)              ║%n", 
+            elapsed, totals.startupMillis));
+        sb.append(String.format("║  Okno pomiaru:               %-6d ms                           ║%n", 
+            result.measuredMs));
         sb.append(String.format("║  Wyprodukowano elementów:    %-6d                             ║%n", produced));
         sb.append(String.format("║  Skonsumowano elementów:     %-6d                             ║%n", consumed));
         
-        double throughput = (elapsed > 0) ? (consumed / (elapsed / 1000.0)) : 0;
+        double throughput = result.throughput();
         sb.append(String.format("║  Przepustowość:              %-6.0f elem/sek                     ║%n", throughput));
+        if (config.payloadSize > 0) {
+            sb.append(String.format("║  Przepustowość ładunku:      %-8.1f MB/sek (%d B/element)       ║%n", 
+                result.bytesPerSecond() / (1024 * 1024), config.payloadSize));
+        }
+        if (totals.corruptPayloads > 0) {
+            sb.append(String.format("║  Uszkodzone ładunki:         %-6d                             ║%n", 
+                totals.corruptPayloads));
+        }
+        sb.append(String.format("║  Timeouty wstawiania:        %-6d (stracono %d ms)             ║%n", 
+            stats.putTimeouts, result.lostMillis()));
+        if (stats.spilled > 0) {
+            sb.append(String.format("║  Przelane do innych buforów: %-6d (%4.1f%%)                     ║%n", 
+                stats.spilled, (produced > 0) ? stats.spilled * 100.0 / produced : 0));
+        }
+        if (stats.stolen > 0) {
+            sb.append(String.format("║  Przejęte z innych buforów:  %-6d (%4.1f%%)                     ║%n", 
+                stats.stolen, (consumed > 0) ? stats.stolen * 100.0 / consumed : 0));
+        }
+        if (stats.remotePuts > 0 || stats.remoteTakes > 0) {
+            sb.append(String.format("║  Spoza grupy lokalności:     wstawione %4.1f%%, pobrane %4.1f%%      ║%n", 
+                (produced > 0) ? stats.remotePuts * 100.0 / produced : 0,
+                (consumed > 0) ? stats.remoteTakes * 100.0 / consumed : 0));
+        }
+        if (totals.workerAllocatedBytes >= 0) {
+            sb.append(String.format(
+                "║  Alokacja na synchronizację: procesy %.0f B, dispatchery %.0f B (%d)%n", 
+                result.allocatedPerSync(false), result.allocatedPerSync(true), totals.syncs));
+        }
+        sb.append(String.format("║  Odśmiecania (GC):           %-6d (%d ms)                       ║%n", 
+            totals.gcCount, totals.gcMillis));
+        if (config.shiftMillis > 0) {
+            sb.append(String.format("║  Zbieżność po zmianie:       %-6s (wolne/pozostałe %.1fx)       ║%n", 
+                (totals.shiftConvergedMillis >= 0) ? totals.shiftConvergedMillis + " ms" : "brak",
+                totals.shiftRatio));
+        }
+        long dropped = result.dropped();
+        sb.append(String.format("║  Zamknięcie po terminie:     %-6d ms (porzucone %d)              ║%n", 
+            totals.shutdownMillis, dropped));
+        if (dropped > 0) {
+            sb.append(String.format("║    w buforach %d, niewstawione przez producentów %d%n", 
+                totals.leftover, totals.unplaced));
+        }
+        if (config.backend == BufferBackend.MAPPED) {
+            sb.append(String.format("║  Segmenty buforów:           odzyskane %d, zostawione %d%n", 
+                totals.recovered, totals.persisted));
+        }
+        // Bilans liczony dla całego przebiegu, nie dla okna pomiaru
+        if (totals.produced + totals.recovered != totals.consumed + totals.leftover + totals.persisted) {
+            sb.append(String.format("║  UWAGA: bilans się nie zgadza (%d + %d != %d + %d + %d)%n", 
+                totals.produced, totals.recovered, totals.consumed, totals.leftover, totals.persisted));
+        }
+        if (config.orderWindow > 0) {
+            sb.append(String.format("║  Dostarczone w kolejności:   %-6d (luki %d, spóźnione %d)        ║%n", 
+                totals.orderedDelivered, totals.orderGaps, totals.lateItems));
+        }
+        
+        long peakRssKb = result.peakRssKb;
+        sb.append(String.format("║  Szczyt RSS procesu:         %-6s MB                           ║%n", 
+            (peakRssKb >= 0) ? String.valueOf(peakRssKb / 1024) : "-"));
+        
+        if (stats.putLatency != null) {
+            sb.append("╠══════════════════════════════════════════════════════════════════╣\n");
+            sb.append(String.format("║  %-14s %9s %9s %9s %9s          ║%n", 
+                "Opóźn. [µs]", "p50", "p99", "p99.9", "max"));
+            sb.append(formatLatencyRow("Wstawianie", result.putLatency()));
+            sb.append(formatLatencyRow("Pobieranie", result.takeLatency()));
+            sb.append(formatLatencyRow("Sync prod.", stats.producerSyncLatency));
+            sb.append(formatLatencyRow("Sync kons.", stats.consumerSyncLatency));
+        }
         
         sb.append("╠══════════════════════════════════════════════════════════════════╣\n");
         sb.append("║                  STATYSTYKI BUFORÓW                              ║\n");
@@ -316,13 +372,13 @@ public class TestTablicaDispatcher {
         sb.append("║  Bufor   │  Przekazane   │    Procent     ║\n");
         sb.append("╠══════════┼───────────────┼────────────────╣\n");
         
-        int total = 0;
+        long total = 0;
         for (int i = 0; i < numBuffers; i++) {
-            total += bufferStats[i].get();
+            total += bufferStats[i];
         }
         
         for (int i = 0; i < numBuffers; i++) {
-            int count = bufferStats[i].get();
+            long count = bufferStats[i];
             double percent = (total > 0) ? (count * 100.0 / total) : 0;
             sb.append(String.format("║    %-2d    │      %6d   │    %5.1f%%      ║%n", 
                 i, count, percent));
@@ -333,14 +389,9 @@ public class TestTablicaDispatcher {
         sb.append("╚══════════╧───────────────╧────────────────╝\n");
         
         // Analiza równomierności
-        double avgPerBuffer = (numBuffers > 0) ? ((double) total / numBuffers) : 0;
-        double variance = 0;
-        for (int i = 0; i < numBuffers; i++) {
-            double diff = bufferStats[i].get() - avgPerBuffer;
-            variance += diff * diff;
-        }
-        double stdDev = (numBuffers > 0) ? Math.sqrt(variance / numBuffers) : 0;
-        double coefficient = (avgPerBuffer > 0) ? (stdDev / avgPerBuffer * 100) : 0;
+        double avgPerBuffer = result.bufferMean();
+        double stdDev = result.bufferStdDev();
+        double coefficient = result.bufferCoefficient();
         
         sb.append("\n╔══════════════════════════════════════════════════════════════════╗\n");
         sb.append("║                  ANALIZA RÓWNOMIERNOŚCI                          ║\n");
@@ -365,34 +416,42 @@ public class TestTablicaDispatcher {
         
         // Dodatkowe statystyki w formacie CSV na końcu
         sb.append("\n=== DANE CSV (do analizy) ===\n");
-        sb.append(String.format("P,B,K,t,czas_ms,wyprodukowano,skonsumowano,przepustowosc,srednia,odchylenie,wsp_zmiennosci%n"));
-        sb.append(String.format("%d,%d,%d,%d,%d,%d,%d,%.2f,%.2f,%.2f,%.2f%n",
-            numProducers, numBuffers, numConsumers, durationSeconds, elapsed, 
-            produced, consumed, throughput, avgPerBuffer, stdDev, coefficient));
+        sb.append(RunResult.csvHeader()).append("\n");
+        sb.append(result.csvRow()).append("\n");
         
         sb.append("\n=== ROZKŁAD OBCIĄŻENIA BUFORÓW (CSV) ===\n");
         sb.append("Bufor,Przekazane,Procent\n");
         for (int i = 0; i < numBuffers; i++) {
-            int count = bufferStats[i].get();
+            long count = bufferStats[i];
             double percent = (total > 0) ? (count * 100.0 / total) : 0;
             sb.append(String.format("%d,%d,%.2f%n", i, count, percent));
         }
         
+        if (stats.putLatency != null) {
+            sb.append("\n=== OPÓŹNIENIA (CSV, µs) ===\n");
+            sb.append("Operacja,Bufor,Liczba,p50,p99,p99.9,max\n");
+            for (int i = 0; i < numBuffers; i++) {
+                sb.append(formatLatencyCsv("wstawianie", String.valueOf(i), stats.putLatency[i]));
+            }
+            for (int i = 0; i < numBuffers; i++) {
+                sb.append(formatLatencyCsv("pobieranie", String.valueOf(i), stats.takeLatency[i]));
+            }
+            sb.append(formatLatencyCsv("sync_producenci", "-", stats.producerSyncLatency));
+            sb.append(formatLatencyCsv("sync_konsumenci", "-", stats.consumerSyncLatency));
+        }
+        
         return sb.toString();
     }
-}
-
-// Klasa pomocnicza do przechowywania konfiguracji testu
-class TestConfig {
-    final int numProducers;
-    final int numBuffers;
-    final int numConsumers;
-    final int durationSeconds;
     
-    TestConfig(int numProducers, int numBuffers, int numConsumers, int durationSeconds) {
-        this.numProducers = numProducers;
-        this.numBuffers = numBuffers;
-        this.numConsumers = numConsumers;
-        this.durationSeconds = durationSeconds;
+    private static String formatLatencyRow(String label, LatencyHistogram h) {
+        return String.format("║  %-14s %9.1f %9.1f %9.1f %9.1f          ║%n", label,
+            h.percentile(50) / 1000.0, h.percentile(99) / 1000.0, 
+            h.percentile(99.9) / 1000.0, h.max() / 1000.0);
     }
-}
\ No newline at end of file
+    
+    private static String formatLatencyCsv(String operation, String buffer, LatencyHistogram h) {
+        return String.format("%s,%s,%d,%.1f,%.1f,%.1f,%.1f%n", operation, buffer, h.count(),
+            h.percentile(50) / 1000.0, h.percentile(99) / 1000.0, 
+            h.percentile(99.9) / 1000.0, h.max() / 1000.0);
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.SplittableRandom;
+
+/**
+ * Bandyta z próbkowaniem Thompsona na nagrodzie względnej do średniego
+ * czasu operacji procesu (LatencyReward); nieudana operacja to nagroda 0,
+ * a timeout dodatkowo zeruje średnią bufora.
+ *
+ * Dla każdego bufora trzyma średnią i wariancję nagrody (wykładnicze po
+ * 1/ewma próbkach) i przy każdym wyborze losuje z rozkładu normalnego
+ * średnia + sqrt((wariancja + PRIOR_VARIANCE) / n + s) * z, gdzie n to
+ * liczba próbek ograniczona do 1/ewma, a s rośnie z liczbą operacji procesu
+ * od ostatniej wizyty w buforze. Wybierany jest bufor o największej
+ * wylosowanej wartości: bufory o nieodróżnialnych czasach są wybierane
+ * mniej więcej po równo, a wyraźnie wolniejsze - rzadko, ale nigdy
+ * całkiem porzucone. W przeciwieństwie do UCB procesy o tych samych
+ * obserwacjach nie wybierają zgodnie jednego bufora. z to suma czterech
+ * liczb jednostajnych (przybliżenie rozkładu normalnego bez logarytmów).
+ */
+class ThompsonPolicy implements BufferSelectionPolicy {
+
+    /** Wariancja a priori - bez niej bufor o stałych czasach przestałby być losowany. */
+    private static final double PRIOR_VARIANCE = 0.05;
+    private static final double SQRT_3 = Math.sqrt(3);
+
+    private final int numBuffers;
+    private final SplittableRandom rand;
+    private final double minStep;
+    private final double[] mean;
+    private final double[] variance;
+    private final double[] spreadSq; // (wariancja + prior) / n, liczone przy obserwacji
+    private final long[] count;
+    private final long[] lastSeen;   // numer obserwacji procesu, w której bufor był ostatnio użyty
+    private final double staleRate;
+    private long ticks = 0;
+    private final LatencyReward reward;
+
+    ThompsonPolicy(int numBuffers, PolicySettings settings, SplittableRandom rand) {
+        this.numBuffers = numBuffers;
+        this.rand = rand;
+        this.minStep = settings.ewmaAlpha;
+        this.mean = new double[numBuffers];
+        this.variance = new double[numBuffers];
+        this.spreadSq = new double[numBuffers];
+        this.count = new long[numBuffers];
+        this.lastSeen = new long[numBuffers];
+        this.staleRate = minStep / numBuffers;
+        this.reward = new LatencyReward(minStep);
+    }
+
+    @Override
+    public int select() {
+        if (rand.nextInt(numBuffers + 1) == numBuffers) {
+            return numBuffers;
+        }
+
+        int best = -1;
+        double bestSample = Double.NEGATIVE_INFINITY;
+        int start = rand.nextInt(numBuffers);
+        for (int i = 0; i < numBuffers; i++) {
+            int b = start + i;
+            if (b >= numBuffers) b -= numBuffers;
+            if (count[b] == 0) return b; // każdy bufor najpierw raz
+
+            double z = (rand.nextDouble() + rand.nextDouble() + rand.nextDouble()
+                        + rand.nextDouble() - 2.0) * SQRT_3;
+            // Niepewność rośnie z czasem od ostatniej obserwacji bufora - także porzuconego
+            double stale = (ticks - lastSeen[b]) * staleRate * PRIOR_VARIANCE;
+            double sample = mean[b] + Math.sqrt(spreadSq[b] + stale) * z;
+            if (sample > bestSample) {
+                best = b;
+                bestSample = sample;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void onSuccess(int buffer, long nanosPerItem) {
+        observe(buffer, reward.reward(nanosPerItem));
+    }
+
+    @Override
+    public void onMiss(int buffer, long waitedNanos) {
+        observe(buffer, 0.0);
+        if (waitedNanos > 0) {
+            // Timeout trwał dłużej niż setki udanych operacji, więc zastępuje
+            // średnią zamiast ją przesuwać. Próba bez czekania nic nie kosztowała
+            // i jest zwykłą obserwacją z nagrodą 0.
+            mean[buffer] = 0.0;
+        }
+    }
+
+    @Override
+    public void onSync(long[] aggregatedWaitTimes) {
+        // Jak UCB - tylko własne obserwacje, bo dispatcher nie zna nieudanych operacji
+    }
+
+    @Override
+    public double score(int buffer) {
+        return mean[buffer];
+    }
+
+    private void observe(int buffer, double value) {
+        long n = ++count[buffer];
+        lastSeen[buffer] = ++ticks;
+        double step = Math.max(1.0 / n, minStep);
+        double diff = value - mean[buffer];
+        mean[buffer] += step * diff;
+        variance[buffer] = (1 - step) * (variance[buffer] + step * diff * diff);
+        double samples = Math.min(n, 1.0 / minStep);
+        spreadSq[buffer] = (variance[buffer] + PRIOR_VARIANCE) / samples;
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.SplittableRandom;
+
+/**
+ * "Power of two choices": dwa różne losowe bufory i wybór lepszego według
+ * bieżącej głębokości - producent bierze mniej zapełniony, konsument
+ * bardziej. Nie korzysta z czasów oczekiwania ani z dispatchera.
+ */
+class TwoChoicesPolicy implements BufferSelectionPolicy {
+
+    private final ItemBuffer[] queues;
+    private final int numBuffers;
+    private final boolean producer;
+    private final SplittableRandom rand;
+
+    TwoChoicesPolicy(ItemBuffer[] queues, boolean producer, SplittableRandom rand) {
+        this.queues = queues;
+        this.numBuffers = queues.length;
+        this.producer = producer;
+        this.rand = rand;
+    }
+
+    @Override
+    public int select() {
+        if (rand.nextInt(numBuffers + 1) == numBuffers) {
+            return numBuffers;
+        }
+        int first = rand.nextInt(numBuffers);
+        if (numBuffers == 1) return first;
+
+        int second = rand.nextInt(numBuffers - 1);
+        if (second == first) second = numBuffers - 1;
+        return (score(second) > score(first)) ? second : first;
+    }
+
+    @Override
+    public void onSuccess(int buffer, long nanosPerItem) {
+    }
+
+    @Override
+    public void onMiss(int buffer, long waitedNanos) {
+    }
+
+    @Override
+    public void onSync(long[] aggregatedWaitTimes) {
+    }
+
+    @Override
+    public double score(int buffer) {
+        int depth = queues[buffer].size();
+        return producer ? -depth : depth;
+    }
+}
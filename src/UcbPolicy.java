@@ -0,0 +1,100 @@
+import java.util.SplittableRandom;
+
+/**
+ * Bandyta UCB1 na nagrodzie względnej do średniego czasu operacji procesu
+ * (LatencyReward); nieudana operacja to nagroda 0. Wybierany jest bufor
+ * o największym średnia + c * sqrt(ln N / n), z premią rosnącą z czasem od
+ * ostatniej wizyty w buforze. Średnia jest zwykłą średnią, dopóki bufor
+ * ma mniej niż 1/ewma próbek, potem staje się wykładniczą - czasy buforów
+ * zmieniają się w trakcie przebiegu, więc stare próbki muszą wygasać.
+ * Wybór przegląda wszystkie bufory od losowego miejsca - O(B) na element;
+ * 1/sqrt(n) każdego bufora jest liczone przy obserwacji. Losowy początek
+ * rozstrzyga remisy, więc procesy nie zbiegają się na buforze o najniższym
+ * numerze.
+ *
+ * Wybór jest deterministyczny, więc procesy o podobnych obserwacjach
+ * wybierają ten sam bufor - równomierne obciążenie daje raczej THOMPSON.
+ */
+class UcbPolicy implements BufferSelectionPolicy {
+
+    private final int numBuffers;
+    private final SplittableRandom rand;
+    private final double exploration;
+    private final double minStep;
+    private final double[] mean;
+    private final long[] count;
+    private final double[] invSqrtCount;
+    private final LatencyReward reward;
+    private final long[] lastSeen;   // numer obserwacji, w której bufor był ostatnio użyty
+    private final double staleRate;
+    private long total = 0;
+
+    UcbPolicy(int numBuffers, PolicySettings settings, SplittableRandom rand) {
+        this.numBuffers = numBuffers;
+        this.rand = rand;
+        this.exploration = settings.ucbExploration;
+        this.minStep = settings.ewmaAlpha;
+        this.mean = new double[numBuffers];
+        this.count = new long[numBuffers];
+        this.invSqrtCount = new double[numBuffers];
+        this.reward = new LatencyReward(minStep);
+        this.lastSeen = new long[numBuffers];
+        this.staleRate = minStep / numBuffers;
+    }
+
+    @Override
+    public int select() {
+        if (rand.nextInt(numBuffers + 1) == numBuffers) {
+            return numBuffers;
+        }
+
+        double bonus = exploration * Math.sqrt(Math.log(total + 1));
+        int best = -1;
+        double bestBound = Double.NEGATIVE_INFINITY;
+        int start = rand.nextInt(numBuffers);
+        for (int i = 0; i < numBuffers; i++) {
+            int b = start + i;
+            if (b >= numBuffers) b -= numBuffers;
+            if (count[b] == 0) return b; // każdy bufor najpierw raz
+
+            // Premia rośnie z czasem od ostatniej obserwacji bufora
+            double stale = 1.0 + (total - lastSeen[b]) * staleRate;
+            double bound = mean[b] + bonus * invSqrtCount[b] * Math.sqrt(stale);
+            if (bound > bestBound) {
+                best = b;
+                bestBound = bound;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void onSuccess(int buffer, long nanosPerItem) {
+        observe(buffer, reward.reward(nanosPerItem));
+    }
+
+    @Override
+    public void onMiss(int buffer, long waitedNanos) {
+        observe(buffer, 0.0);
+    }
+
+    @Override
+    public void onSync(long[] aggregatedWaitTimes) {
+        // Dispatcher zbiera czasy tylko udanych operacji - ich wmieszanie
+        // podnosiłoby nagrodę pełnych (pustych) buforów i ściągało do nich
+        // procesy z powrotem. UCB korzysta wyłącznie z własnych obserwacji.
+    }
+
+    @Override
+    public double score(int buffer) {
+        return mean[buffer];
+    }
+
+    private void observe(int buffer, double reward) {
+        count[buffer]++;
+        lastSeen[buffer] = ++total;
+        invSqrtCount[buffer] = 1.0 / Math.sqrt(count[buffer]);
+        double step = Math.max(1.0 / count[buffer], minStep);
+        mean[buffer] += step * (reward - mean[buffer]);
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.SplittableRandom;
+
+/**
+ * Tablica wag z losowaniem proporcjonalnym do wagi w O(log n).
+ *
+ * Wagi są trzymane w drzewie Fenwicka, więc zmiana jednej wagi i losowanie
+ * kosztują O(log n) zamiast pełnego przejścia po tablicy.
+ * Drzewo jest okresowo przebudowywane, żeby nie kumulować błędów zaokrągleń.
+ */
+class WeightSampler {
+
+    private static final int REBUILD_INTERVAL = 4096;
+
+    private final int size;
+    private final double[] weights;
+    private final double[] tree; // indeksowane od 1
+    private final int topStep;
+    private int updatesSinceRebuild = 0;
+
+    WeightSampler(int size, double initialWeight) {
+        this.size = size;
+        this.weights = new double[size];
+        this.tree = new double[size + 1];
+        this.topStep = (size > 0) ? Integer.highestOneBit(size) : 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = initialWeight;
+        }
+        rebuild();
+    }
+
+    int size() {
+        return size;
+    }
+
+    double get(int index) {
+        return weights[index];
+    }
+
+    void set(int index, double weight) {
+        double delta = weight - weights[index];
+        weights[index] = weight;
+        if (delta != 0) {
+            add(index, delta);
+        }
+    }
+
+    /**
+     * Bezpośredni dostęp do wag przy zmianie wielu pozycji naraz -
+     * po modyfikacji trzeba wywołać rebuild().
+     */
+    double[] rawWeights() {
+        return weights;
+    }
+
+    void rebuild() {
+        for (int i = 1; i <= size; i++) {
+            tree[i] = weights[i - 1];
+        }
+        for (int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if (parent <= size) tree[parent] += tree[i];
+        }
+        updatesSinceRebuild = 0;
+    }
+
+    /** Suma wag. */
+    double total() {
+        double sum = 0;
+        for (int i = size; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Losuje pozycję z prawdopodobieństwem proporcjonalnym do wagi.
+     * @return indeks albo -1, gdy suma wag nie jest dodatnia
+     */
+    int sample(SplittableRandom rand) {
+        double total = total();
+        if (total <= 0) return -1;
+
+        double r = rand.nextDouble() * total;
+        int pos = 0;
+        for (int step = topStep; step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= size && tree[next] <= r) {
+                pos = next;
+                r -= tree[next];
+            }
+        }
+
+        // Zaokrąglenia mogą wskazać koniec tablicy lub pozycję o zerowej wadze
+        if (pos >= size || weights[pos] <= 0) {
+            return lastPositive();
+        }
+        return pos;
+    }
+
+    private int lastPositive() {
+        for (int i = size - 1; i >= 0; i--) {
+            if (weights[i] > 0) return i;
+        }
+        return -1;
+    }
+
+    private void add(int index, double delta) {
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+        if (++updatesSinceRebuild >= REBUILD_INTERVAL) {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Żądanie procesu do dispatchera: czasy oczekiwania z ostatnich operacji
+ * (w skrzynce procesu) albo zgłoszenie zakończenia.
+ */
+class WeightTableRequest {
+    final int processId;
+    final long[] waitTimes;          // skrzynka procesu, null przy zakończeniu
+    final WeightTableResponse reply; // null w trybie ASYNC i przy zakończeniu
+    final boolean isTermination;
+    
+    /** ASYNC: żądanie czeka w kanale - proces nie może nadpisać waitTimes. */
+    volatile boolean pending;
+    
+    WeightTableRequest(int processId, long[] waitTimes, WeightTableResponse reply) {
+        this.processId = processId;
+        this.waitTimes = waitTimes;
+        this.reply = reply;
+        this.isTermination = false;
+    }
+    
+    /** Zgłoszenie zakończenia procesu. */
+    WeightTableRequest(int processId) {
+        this.processId = processId;
+        this.waitTimes = null;
+        this.reply = null;
+        this.isTermination = true;
+    }
+}
@@ -0,0 +1,8 @@
+/** Odpowiedź dispatchera: zagregowana tablica czasów oczekiwania. */
+class WeightTableResponse {
+    final long[] aggregatedWaitTimes;
+    
+    WeightTableResponse(long[] aggregatedWaitTimes) {
+        this.aggregatedWaitTimes = aggregatedWaitTimes;
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.SplittableRandom;
+
+/**
+ * Pierwotna polityka: losowanie proporcjonalne do wagi, waga to średnia
+ * wykładnicza z 1/(1 + czas w ms). Dispatcher ma własną wagę na pozycji
+ * numBuffers i jest losowany razem z buforami.
+ */
+class WeightedPolicy implements BufferSelectionPolicy {
+
+    private static final double MIN_WEIGHT = 0.01;
+
+    private final int numBuffers;
+    private final WeightSampler weights;
+    private final SplittableRandom rand;
+    private final double alpha;
+    private final double syncBlend;
+    private final double missPenalty;
+
+    WeightedPolicy(int numBuffers, boolean producer, PolicySettings settings, SplittableRandom rand) {
+        this.numBuffers = numBuffers;
+        this.weights = new WeightSampler(numBuffers + 1, 1.0);
+        this.rand = rand;
+        this.alpha = settings.ewmaAlpha;
+        this.syncBlend = settings.syncBlend;
+        this.missPenalty = producer ? settings.putPenalty : settings.takePenalty;
+    }
+
+    @Override
+    public int select() {
+        // Wagi są >= MIN_WEIGHT, więc -1 tylko przy zaokrągleniach - wtedy dispatcher
+        int selected = weights.sample(rand);
+        return (selected >= 0) ? selected : numBuffers;
+    }
+
+    @Override
+    public void onSuccess(int buffer, long nanosPerItem) {
+        double weight = (1 - alpha) * weights.get(buffer) + alpha * reward(nanosPerItem);
+        weights.set(buffer, Math.max(weight, MIN_WEIGHT));
+    }
+
+    @Override
+    public void onMiss(int buffer, long waitedNanos) {
+        weights.set(buffer, weights.get(buffer) * missPenalty);
+    }
+
+    @Override
+    public void onSync(long[] aggregatedWaitTimes) {
+        double[] raw = weights.rawWeights();
+        for (int i = 0; i < raw.length && i < aggregatedWaitTimes.length; i++) {
+            if (aggregatedWaitTimes[i] > 0) {
+                raw[i] = (1 - syncBlend) * raw[i] + syncBlend * reward(aggregatedWaitTimes[i]);
+            }
+        }
+
+        // Normalizacja do średniej 1
+        double sum = 0;
+        for (double w : raw) sum += w;
+        if (sum > 0) {
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = raw[i] / sum * raw.length;
+            }
+        }
+        weights.rebuild();
+    }
+
+    @Override
+    public double score(int buffer) {
+        return weights.get(buffer);
+    }
+
+    /** Czas oczekiwania zamieniony na wagę w (0, 1]: 1/(1 + ms). */
+    static double reward(long nanos) {
+        return 1.0 / (1.0 + nanos / 1_000_000.0);
+    }
+}
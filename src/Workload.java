@@ -0,0 +1,188 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Model obciążenia procesów: bez niego producenci i konsumenci nie robią
+ * nic poza operacjami na buforach, więc są jednakowo szybcy i każda
+ * polityka równoważy je prawie idealnie.
+ *
+ * - czas obsługi elementu u konsumenta i producenta (ServiceTime),
+ * - praca CPU na element (workUnits rund mieszania bitów),
+ * - wolni konsumenci: pierwsze ceil(slowShare * K) procesów ma czas
+ *   obsługi i pracę CPU przemnożone przez slowFactor,
+ * - wolne bufory: pobranie z pierwszych slowBuffers buforów trwa
+ *   dodatkowo slowBufferNanos na element.
+ *
+ * Czas obsługi jest odczekiwany parkNanos (jak I/O), a ostatnie
+ * SPIN_LIMIT_NANOS - aktywnym czekaniem, bo parkNanos nie odmierza krótkich
+ * czasów. Wartości domyślne nie zmieniają zachowania systemu.
+ */
+final class Workload {
+
+    private static final long SPIN_LIMIT_NANOS = 50_000;
+
+    ServiceTime consumerService = null;
+    ServiceTime producerService = null;
+    int workUnits = 0;
+    double slowShare = 0;
+    double slowFactor = 1;
+    int slowBuffers = 0;
+    long slowBufferNanos = 0;
+
+    /** Niezależna kopia (ServiceTime jest niezmienny). */
+    Workload copy() {
+        Workload copy = new Workload();
+        copy.consumerService = consumerService;
+        copy.producerService = producerService;
+        copy.workUnits = workUnits;
+        copy.slowShare = slowShare;
+        copy.slowFactor = slowFactor;
+        copy.slowBuffers = slowBuffers;
+        copy.slowBufferNanos = slowBufferNanos;
+        return copy;
+    }
+
+    void setConsumerService(String spec) {
+        consumerService = spec.equalsIgnoreCase("none") ? null : ServiceTime.parse(spec);
+    }
+
+    void setProducerService(String spec) {
+        producerService = spec.equalsIgnoreCase("none") ? null : ServiceTime.parse(spec);
+    }
+
+    void setWorkUnits(int workUnits) {
+        if (workUnits < 0) {
+            throw new IllegalArgumentException("work musi być >= 0: " + workUnits);
+        }
+        this.workUnits = workUnits;
+    }
+
+    /** "UDZIAŁ:MNOŻNIK", np. 0.25:4 - co czwarty konsument 4 razy wolniejszy. */
+    void setSlowConsumers(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            double share = Double.parseDouble(parts[0]);
+            double factor = (parts.length > 1) ? Double.parseDouble(parts[1]) : 1;
+            if (parts.length != 2 || !(share >= 0 && share <= 1) || !(factor >= 1)) {
+                throw new IllegalArgumentException("slow przyjmuje UDZIAŁ:MNOŻNIK, udział w [0, 1], mnożnik >= 1: " + spec);
+            }
+            this.slowShare = share;
+            this.slowFactor = factor;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("slow przyjmuje UDZIAŁ:MNOŻNIK: " + spec);
+        }
+    }
+
+    /** "LICZBA:US", np. 2:100 - dwa pierwsze bufory, +100 us na pobrany element. */
+    void setSlowBuffers(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            int count = Integer.parseInt(parts[0]);
+            long micros = (parts.length > 1) ? Long.parseLong(parts[1]) : 0;
+            if (parts.length != 2 || count < 0 || micros < 0) {
+                throw new IllegalArgumentException("slow-buffers przyjmuje LICZBA:US (>= 0): " + spec);
+            }
+            this.slowBuffers = count;
+            this.slowBufferNanos = micros * 1_000L;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("slow-buffers przyjmuje LICZBA:US: " + spec);
+        }
+    }
+
+    /** Czy model cokolwiek zmienia (inaczej system działa jak bez niego). */
+    boolean isActive() {
+        return consumerService != null || producerService != null || workUnits > 0
+            || (slowBuffers > 0 && slowBufferNanos > 0);
+    }
+
+    /** Obsługa elementów przez konsumenta o id cid (null, gdy nie ma czego symulować). */
+    Worker consumer(int cid, int numConsumers) {
+        if (consumerService == null && workUnits == 0) return null;
+        int slowCount = (int) Math.ceil(slowShare * numConsumers);
+        double scale = (cid < slowCount) ? slowFactor : 1;
+        return new Worker(consumerService, (int) Math.round(workUnits * scale), scale,
+                          new SplittableRandom(cid * 3000 + System.nanoTime()));
+    }
+
+    /** Wytwarzanie elementów przez producenta (null bez producer-service). */
+    Worker producer(int pid) {
+        if (producerService == null) return null;
+        return new Worker(producerService, 0, 1, new SplittableRandom(pid * 4000 + System.nanoTime()));
+    }
+
+    /** Dodatkowy czas pobrania jednego elementu z bufora (wolne bufory). */
+    long takeDelayNanos(int buffer) {
+        return (buffer < slowBuffers) ? slowBufferNanos : 0;
+    }
+
+    /** Ustawienia różne od domyślnych, w formacie opcji (pusty, gdy brak). */
+    String describe() {
+        StringBuilder sb = new StringBuilder();
+        if (consumerService != null) sb.append(" service=").append(consumerService);
+        if (producerService != null) sb.append(" producer-service=").append(producerService);
+        if (workUnits > 0) sb.append(" work=").append(workUnits);
+        if (slowShare > 0 && slowFactor > 1) sb.append(" slow=").append(slowShare).append(':').append(slowFactor);
+        if (slowBuffers > 0 && slowBufferNanos > 0) {
+            sb.append(" slow-buffers=").append(slowBuffers).append(':').append(slowBufferNanos / 1_000);
+        }
+        return sb.toString();
+    }
+
+    /** Stan jednego procesu: generator, mnożnik i wynik pracy CPU. */
+    static final class Worker {
+        private final ServiceTime service;
+        private final int workUnits;
+        private final double scale;
+        private final SplittableRandom rand;
+        private long sink;   // wynik pracy CPU - pole obiektu, więc JIT jej nie usunie
+
+        private Worker(ServiceTime service, int workUnits, double scale, SplittableRandom rand) {
+            this.service = service;
+            this.workUnits = workUnits;
+            this.scale = scale;
+            this.rand = rand;
+        }
+
+        /** Obsługa count elementów o podanych wartościach (batch[0..count)). */
+        void serve(int[] batch, int count) {
+            long nanos = 0;
+            for (int i = 0; i < count; i++) {
+                if (workUnits > 0) burn(batch[i]);
+                if (service != null) nanos += service.sample(rand, scale);
+            }
+            spend(nanos);
+        }
+
+        /** Obsługa count elementów bez wartości (producent przed wytworzeniem). */
+        void serve(int count) {
+            long nanos = 0;
+            for (int i = 0; i < count; i++) {
+                nanos += service.sample(rand, scale);
+            }
+            spend(nanos);
+        }
+
+        private void burn(int item) {
+            long x = item ^ sink ^ 0x9E3779B97F4A7C15L;
+            for (int i = 0; i < workUnits; i++) {
+                x ^= x << 13;
+                x ^= x >>> 7;
+                x ^= x << 17;
+            }
+            sink = x;
+        }
+
+        private static void spend(long nanos) {
+            if (nanos <= 0) return;
+            long deadline = System.nanoTime() + nanos;
+            long left;
+            while ((left = deadline - System.nanoTime()) > 0) {
+                if (left > SPIN_LIMIT_NANOS) {
+                    LockSupport.parkNanos(left - SPIN_LIMIT_NANOS);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zestaw scenariuszy dla BenchmarkRunner --suite: sprawdza, czy dispatcher
+ * z tablicą wag rzeczywiście wygrywa z naiwnym round-robin, kiedy procesy
+ * albo bufory mają różne szybkości (model obciążenia Workload).
+ *
+ * heterogeneous[:SEKUNDY] - P=4 B=8 K=8, kolejno: bez modelu, stały,
+ * wykładniczy i dwumodalny czas obsługi, przestoje, co czwarty konsument
+ * 8 razy wolniejszy (czas obsługi i praca CPU) oraz dwa wolne bufory.
+ */
+final class WorkloadSuite {
+
+    static final String HETEROGENEOUS = "heterogeneous";
+    private static final int DEFAULT_SECONDS = 5;
+
+    private static final String[] HETEROGENEOUS_SCENARIOS = {
+        "",
+        "service=const:20",
+        "service=exp:20",
+        "service=bimodal:10:400:0.05",
+        "service=stall:20:100:10",
+        "service=const:20 slow=0.25:8",
+        "work=2000 slow=0.25:8",
+        "service=const:20 slow-buffers=2:200",
+    };
+
+    private WorkloadSuite() {
+    }
+
+    /** Konfiguracje zestawu "nazwa[:SEKUNDY]" (z histogramami opóźnień). */
+    static List<TestConfig> configs(String spec) {
+        String[] parts = spec.split(":");
+        if (!parts[0].equalsIgnoreCase(HETEROGENEOUS) || parts.length > 2) {
+            throw new IllegalArgumentException("nieznany zestaw (heterogeneous[:SEKUNDY]): " + spec);
+        }
+        int seconds = DEFAULT_SECONDS;
+        if (parts.length == 2) {
+            try {
+                seconds = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("nieprawidłowy czas zestawu: " + spec);
+            }
+            if (seconds < 1) {
+                throw new IllegalArgumentException("czas zestawu musi być >= 1: " + spec);
+            }
+        }
+
+        List<TestConfig> configs = new ArrayList<>();
+        for (String scenario : HETEROGENEOUS_SCENARIOS) {
+            configs.add(TestConfig.parse("4 8 8 " + seconds + " latency=on " + scenario));
+        }
+        return configs;
+    }
+
+    /** Polityki porównywane domyślnie, gdy nie podano --policies. */
+    static List<SelectionPolicy> defaultPolicies() {
+        List<SelectionPolicy> policies = new ArrayList<>();
+        policies.add(SelectionPolicy.WEIGHTED);
+        policies.add(SelectionPolicy.ROUND_ROBIN);
+        return policies;
+    }
+}